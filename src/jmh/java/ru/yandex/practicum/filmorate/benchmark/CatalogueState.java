@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Каталог для бенчмарков: size фильмов, size / 10 пользователей (не меньше 1000),
+ * size лайков и в среднем FRIENDS_PER_USER друзей у пользователя. Фильмы для лайков и друзья выбираются
+ * по заданному распределению, поэтому при ZIPFIAN появляются популярные фильмы и пользователи с большим числом друзей.
+ * Для size = 10 000 000 нужна куча около 8 ГБ: {@code -jvmArgs -Xmx8g}
+ */
+@State(Scope.Benchmark)
+public class CatalogueState {
+	private static final int MIN_USERS = 1_000;
+	private static final int USERS_DIVIDER = 10;
+	private static final int FRIENDS_PER_USER = 20;
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	@Param({"UNIFORM", "ZIPFIAN"})
+	public KeyDistribution distribution;
+
+	public InMemoryFilmStorage filmStorage;
+	public InMemoryUserStorage userStorage;
+	public FilmService filmService;
+	public UserService userService;
+	public int users;
+
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		filmStorage = new InMemoryFilmStorage();
+		userStorage = new InMemoryUserStorage();
+		filmService = new FilmService(filmStorage, userStorage);
+		userService = new UserService(userStorage);
+		users = Math.max(MIN_USERS, size / USERS_DIVIDER);
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < users; i++) {
+			User user = new User();
+			user.setEmail("user" + i + "@mail.ru");
+			user.setLogin("user" + i);
+			user.setName("user" + i);
+			user.setBirthday(LocalDate.of(1990, 1, 1));
+			userStorage.addUser(user);
+		}
+		for (int i = 0; i < size; i++) {
+			Film film = new Film();
+			film.setName("film" + i);
+			film.setDescription("description");
+			film.setReleaseDate(LocalDate.of(1950 + i % 70, 1, 1));
+			film.setDuration(60 + i % 120);
+			filmStorage.addFilm(film);
+		}
+		for (int i = 0; i < size; i++) {
+			filmStorage.addLike(randomFilm(), random.nextInt(users) + 1);
+		}
+		for (long i = 0; i < (long) users * FRIENDS_PER_USER / 2; i++) {
+			int user = random.nextInt(users) + 1;
+			int friend = randomUser();
+			if (user != friend) {
+				userStorage.addFriend(user, friend);
+			}
+		}
+	}
+
+	public int randomFilm() {
+		return distribution.next(ThreadLocalRandom.current(), size);
+	}
+
+	public int randomUser() {
+		return distribution.next(ThreadLocalRandom.current(), users);
+	}
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+	private static final int POPULAR_COUNT = 10;
+
+	@Benchmark
+	public List<Film> getPopularFilms(CatalogueState state) {
+		return state.filmService.getPopularFilms(POPULAR_COUNT);
+	}
+
+	/**
+	 * Популярные фильмы одного года с ограничением продолжительности: выборка по вторичному индексу года
+	 */
+	@Benchmark
+	public List<Film> getPopularFilmsByYearAndDuration(CatalogueState state) {
+		return state.filmService.getPopularFilms(POPULAR_COUNT, 1999, 90, 150);
+	}
+
+	/**
+	 * Популярные фильмы из диапазона продолжительностей: слияние вторичных индексов продолжительности
+	 */
+	@Benchmark
+	public List<Film> getPopularFilmsByDuration(CatalogueState state) {
+		return state.filmService.getPopularFilms(POPULAR_COUNT, null, 90, 150);
+	}
+
+	/**
+	 * Лайк выбранному по распределению фильму от случайного пользователя
+	 */
+	@Benchmark
+	public void addLike(CatalogueState state) {
+		state.filmService.addLike(state.randomFilm(), ThreadLocalRandom.current().nextInt(state.users) + 1);
+	}
+
+	@Benchmark
+	public List<Film> getRecommendedFilms(CatalogueState state) {
+		return state.filmService.getRecommendedFilms(state.randomUser(), POPULAR_COUNT);
+	}
+}
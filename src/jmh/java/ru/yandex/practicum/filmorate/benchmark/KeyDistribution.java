@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Распределение идентификаторов, к которым обращаются бенчмарки
+ */
+public enum KeyDistribution {
+	/** Все id равновероятны */
+	UNIFORM {
+		@Override
+		int next(ThreadLocalRandom random, int size) {
+			return random.nextInt(size) + 1;
+		}
+	},
+	/**
+	 * Распределение Ципфа с показателем 1: вероятность id пропорциональна 1/id,
+	 * небольшое число популярных фильмов и пользователей получает большую часть обращений.
+	 * Выборка обращением непрерывной функции распределения, без таблиц размером с каталог
+	 */
+	ZIPFIAN {
+		@Override
+		int next(ThreadLocalRandom random, int size) {
+			return (int) Math.min(size, Math.pow(size + 1, random.nextDouble()));
+		}
+	};
+
+	/**
+	 * Следующий id
+	 *
+	 * @param random генератор случайных чисел потока
+	 * @param size количество id
+	 * @return id от 1 до size
+	 */
+	abstract int next(ThreadLocalRandom random, int size);
+}
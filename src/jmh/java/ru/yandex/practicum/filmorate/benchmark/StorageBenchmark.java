@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+	@Benchmark
+	public Film getFilm(CatalogueState state) {
+		return state.filmStorage.getFilmById(state.randomFilm());
+	}
+
+	/**
+	 * Повторное сохранение существующего фильма: блокировка фильма и запись в индекс id
+	 */
+	@Benchmark
+	public Film putFilm(CatalogueState state) {
+		return state.filmStorage.updateFilm(state.filmStorage.getFilmById(state.randomFilm()));
+	}
+
+	@Benchmark
+	public User getUser(CatalogueState state) {
+		return state.userStorage.getUserById(state.randomUser());
+	}
+
+	@Benchmark
+	public User putUser(CatalogueState state) {
+		return state.userStorage.updateUser(state.userStorage.getUserById(state.randomUser()));
+	}
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+	@Benchmark
+	public List<User> getFriends(CatalogueState state) {
+		return state.userService.getFriends(state.randomUser());
+	}
+
+	@Benchmark
+	public List<User> getCommonFriends(CatalogueState state) {
+		return state.userService.getCommonFriends(state.randomUser(), state.randomUser());
+	}
+
+	@Benchmark
+	public List<User> getFriendRecommendations(CatalogueState state) {
+		return state.userService.getFriendRecommendations(state.randomUser(), 10);
+	}
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.codec.CodecException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.ImportRecord;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Массовый импорт из тела запроса: JSON-массив или NDJSON читается потоком и передается в сервис
+ * пакетами по BATCH_SIZE записей, поэтому память не зависит от размера файла.
+ * Ошибочные записи попадают в отчет и не прерывают импорт; после синтаксической ошибки JSON
+ * продолжить чтение нельзя, поэтому записи после нее не импортируются
+ */
+final class BulkImports {
+	static final int BATCH_SIZE = 1000;
+
+	private static final String EMPTY_RECORD = "Пустая запись";
+	private static final String MALFORMED_JSON = "Некорректный JSON: ";
+
+	private BulkImports() {
+	}
+
+	/**
+	 * Импортировать записи из потока
+	 *
+	 * @param reader десериализатор записей
+	 * @param body тело запроса
+	 * @param importer импорт пакета записей в сервисе
+	 * @return отчет импорта
+	 */
+	static <T> ImportReport read(ObjectReader reader, InputStream body,
+								 BiConsumer<List<ImportRecord<T>>, ImportReport> importer) throws IOException {
+		ImportReport report = new ImportReport();
+		List<ImportRecord<T>> batch = new ArrayList<>(BATCH_SIZE);
+		long number = 0;
+		try (MappingIterator<T> records = reader.readValues(body)) {
+			while (true) {
+				try {
+					if (!records.hasNextValue()) {
+						break;
+					}
+					number++;
+					T value = records.nextValue();
+					if (value == null) {
+						report.failed(number, ValidationException.ERROR, EMPTY_RECORD);
+					} else {
+						batch.add(new ImportRecord<>(number, value));
+					}
+				} catch (JsonParseException e) {
+					report.failed(Math.max(number, 1), ValidationException.ERROR, MALFORMED_JSON + e.getOriginalMessage());
+					break;
+				} catch (JsonMappingException e) {
+					report.failed(number, ValidationException.ERROR, e.getOriginalMessage());
+				}
+				if (batch.size() == BATCH_SIZE) {
+					importer.accept(batch, report);
+					batch = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+		}
+		if (!batch.isEmpty()) {
+			importer.accept(batch, report);
+		}
+		return report;
+	}
+
+	/**
+	 * Импортировать записи из реактивного потока. Пакеты импортируются по очереди на планировщике хранилища;
+	 * ошибка декодирования завершает чтение, а уже прочитанные записи импортируются
+	 *
+	 * @param records поток записей из тела запроса
+	 * @param scheduler планировщик хранилища
+	 * @param importer импорт пакета записей в сервисе
+	 * @return отчет импорта
+	 */
+	static <T> Mono<ImportReport> read(Flux<T> records, Scheduler scheduler,
+									   BiConsumer<List<ImportRecord<T>>, ImportReport> importer) {
+		ImportReport report = new ImportReport();
+		AtomicLong number = new AtomicLong();
+		return records
+				.map(value -> new ImportRecord<>(number.incrementAndGet(), value))
+				.onErrorResume(e -> e instanceof CodecException || e instanceof ServerWebInputException, e -> {
+					Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+					report.failed(number.get() + 1, ValidationException.ERROR, MALFORMED_JSON
+							+ (cause instanceof JsonProcessingException json ? json.getOriginalMessage() : cause.getMessage()));
+					return Flux.empty();
+				})
+				.buffer(BATCH_SIZE)
+				.concatMap(batch -> Mono.fromRunnable(() -> importer.accept(batch, report)).subscribeOn(scheduler))
+				.then(Mono.fromSupplier(() -> report));
+	}
+}
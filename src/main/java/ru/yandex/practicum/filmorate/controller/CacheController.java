@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.CacheStats;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+@Slf4j
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+	private final FilmStorage filmStorage;
+	private final UserStorage userStorage;
+
+
+	@Autowired
+	public CacheController(FilmStorage filmStorage, UserStorage userStorage) {
+		this.filmStorage = filmStorage;
+		this.userStorage = userStorage;
+	}
+
+	/**
+	 * Статистика попаданий в кэш хранилищ
+	 *
+	 * @return статистика кэшей фильмов и пользователей
+	 */
+	@GetMapping("/stats")
+	public Map<String, CacheStats> getCacheStats() {
+		log.info("Получен запрос статистики кэша хранилищ");
+		Map<String, CacheStats> stats = new LinkedHashMap<>();
+		if (filmStorage instanceof CachingFilmStorage cachingFilmStorage) {
+			stats.put("films", cachingFilmStorage.getCacheStats());
+		}
+		if (userStorage instanceof CachingUserStorage cachingUserStorage) {
+			stats.put("users", cachingUserStorage.getCacheStats());
+		}
+		if (stats.isEmpty()) {
+			throw new NotFoundException("Кэш хранилищ выключен");
+		}
+		return stats;
+	}
+}
@@ -1,29 +1,58 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportReport;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Slf4j
 @RestController
 @RequestMapping("/films")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class FilmController {
 	private static final int DEFAULT_POPULAR_FILMS_LIMIT = 10;
+	private static final int MAX_CACHED_POPULAR_FILMS_LIMIT = 1000;
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
 	private final FilmService filmService;
+	private final ObjectWriter ndjsonWriter;
+	private final ObjectWriter filmListWriter;
+	private final ObjectReader filmReader;
+	private final ObjectReader likeReader;
+	private final Map<Integer, CachedResponse> popularResponses = new ConcurrentHashMap<>();
 
 
 	@Autowired
-	public FilmController(FilmService filmService) {
+	public FilmController(FilmService filmService, ObjectMapper objectMapper) {
 		this.filmService = filmService;
+		this.ndjsonWriter = NdjsonResponses.writer(objectMapper);
+		this.filmListWriter = objectMapper.writerFor(new TypeReference<List<Film>>() {
+		});
+		this.filmReader = objectMapper.readerFor(Film.class);
+		this.likeReader = objectMapper.readerFor(Like.class);
 	}
 
 	/**
@@ -40,6 +69,37 @@ public class FilmController {
 		return ResponseEntity.status(HttpStatus.CREATED).body(createdFilm);
 	}
 
+	/**
+	 * Массовое создание фильмов из JSON-массива или NDJSON. Фильмы проверяются по тем же правилам,
+	 * что и при создании по одному; ошибочные записи не прерывают импорт
+	 *
+	 * @param body фильмы в теле запроса
+	 * @return отчет импорта с id созданных фильмов и ошибками записей
+	 */
+	@PostMapping(value = "/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public ImportReport importFilms(InputStream body) throws IOException {
+		log.info("Получен запрос на импорт фильмов");
+		ImportReport report = BulkImports.read(filmReader, body, filmService::importFilms);
+		log.info("Импорт фильмов завершен: сохранено {}, отклонено {}", report.getImported(), report.getFailed());
+		return report;
+	}
+
+	/**
+	 * Массовое добавление лайков {"filmId": ..., "userId": ...} из JSON-массива или NDJSON
+	 *
+	 * @param body лайки в теле запроса
+	 * @return отчет импорта с ошибками записей
+	 */
+	@PostMapping(value = "/likes/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public ImportReport importLikes(InputStream body) throws IOException {
+		log.info("Получен запрос на импорт лайков");
+		ImportReport report = BulkImports.read(likeReader, body, filmService::importLikes);
+		log.info("Импорт лайков завершен: сохранено {}, отклонено {}", report.getImported(), report.getFailed());
+		return report;
+	}
+
 	/**
 	 * Обновить фильм
 	 *
@@ -55,14 +115,40 @@ public class FilmController {
 	}
 
 	/**
-	 * Список всех фильмов
+	 * Список всех фильмов или страница фильмов, если передан курсор или размер страницы.
+	 * Если страница заполнена полностью, курсор следующей страницы
+	 * возвращается в заголовке X-Next-Cursor
 	 *
-	 * @return список всех фильмов
+	 * @param after id последнего фильма предыдущей страницы
+	 * @param limit размер страницы
+	 * @return список фильмов
 	 */
 	@GetMapping
-	public ResponseEntity<List<Film>> getAllFilms() {
-		log.info("Получен запрос на получение всех фильмов");
-		return ResponseEntity.ok(filmService.getAllFilms());
+	public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) Integer after,
+												  @RequestParam(required = false) Integer limit) {
+		if (after == null && limit == null) {
+			log.info("Получен запрос на получение всех фильмов");
+			return ResponseEntity.ok(filmService.getAllFilms());
+		}
+		log.info("Получен запрос на получение страницы фильмов после id {}, размер {}", after, limit);
+		List<Film> page = filmService.getFilmsPage(after, limit);
+		if (page.isEmpty() || page.size() < (limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit)) {
+			return ResponseEntity.ok(page);
+		}
+		return ResponseEntity.ok()
+				.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()))
+				.body(page);
+	}
+
+	/**
+	 * Потоковая выгрузка всех фильмов в формате NDJSON
+	 *
+	 * @return ответ, в котором записи пишутся по мере обхода хранилища
+	 */
+	@GetMapping(value = "/export", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportFilms() {
+		log.info("Получен запрос на потоковую выгрузку всех фильмов");
+		return NdjsonResponses.stream(ndjsonWriter, filmService::streamAllFilms);
 	}
 
 	/**
@@ -73,7 +159,9 @@ public class FilmController {
 	 */
 	@GetMapping("/{id}")
 	public ResponseEntity<Film> getFilmById(@PathVariable Integer id) {
-		log.info("Получен запрос на получение фильма с id: {}", id);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение фильма с id: {}", id);
+		}
 		return ResponseEntity.ok(filmService.getFilmById(id));
 	}
 
@@ -86,7 +174,9 @@ public class FilmController {
 	 */
 	@PutMapping("/{id}/like/{userId}")
 	public ResponseEntity<Void> addLike(@PathVariable Integer id, @PathVariable Integer userId) {
-		log.info("Получен запрос на добавление лайка: пользователь {} ставит лайк фильму {}", userId, id);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на добавление лайка: пользователь {} ставит лайк фильму {}", userId, id);
+		}
 		filmService.addLike(id, userId);
 		return ResponseEntity.ok().build();
 	}
@@ -100,20 +190,88 @@ public class FilmController {
 	 */
 	@DeleteMapping("/{id}/like/{userId}")
 	public ResponseEntity<Void> removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
-		log.info("Получен запрос на удаление лайка: пользователь {} удаляет лайк фильму {}", userId, id);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на удаление лайка: пользователь {} удаляет лайк фильму {}", userId, id);
+		}
 		filmService.removeLike(id, userId);
 		return ResponseEntity.ok().build();
 	}
 
 	/**
-	 * Список самых популярных фильмов по количеству лайков
+	 * Пакет постановок и снятий лайков [{"filmId": ..., "userId": ..., "op": "like" | "unlike"}].
+	 * Операции применяются в переданном порядке; если хоть один фильм или пользователь не найден,
+	 * пакет не применяется
+	 *
+	 * @param operations операции над лайками
+	 * @return пустой ответ
+	 */
+	@PostMapping("/likes/batch")
+	public ResponseEntity<Void> applyLikes(@RequestBody List<LikeOperation> operations) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на пакет лайков: {} операций", operations.size());
+		}
+		filmService.applyLikes(operations);
+		return ResponseEntity.ok().build();
+	}
+
+	/**
+	 * Список самых популярных фильмов по количеству лайков.
+	 * Если список не менялся с версии из If-None-Match, возвращается 304 без тела;
+	 * сериализованный ответ без фильтров кэшируется для каждого количества до следующего изменения.
+	 * <p>
+	 * С параметром window возвращаются набирающие популярность фильмы за окно; такой список
+	 * меняется со временем без изменения данных, поэтому ETag и кэш ответа для него не используются.
+	 * Отфильтрованные по году и продолжительности списки тоже отдаются без ETag: версия списка популярных
+	 * фильмов одна на количество и не различает фильтры
 	 *
 	 * @param count количество фильмов для возврата (если null, возвращается 10)
-	 * @return список популярных фильмов
+	 * @param window длина окна набирающих популярность фильмов: 1h, 24h или 7d
+	 * @param year год выпуска
+	 * @param minDuration минимальная продолжительность включительно
+	 * @param maxDuration максимальная продолжительность включительно
+	 * @param request запрос с заголовком If-None-Match
+	 * @return список популярных фильмов в JSON
 	 */
 	@GetMapping("/popular")
-	public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(required = false) Integer count) {
-		log.info("Получен запрос на получение популярных фильмов, количество: {}", count != null ? count : DEFAULT_POPULAR_FILMS_LIMIT);
-		return ResponseEntity.ok(filmService.getPopularFilms(count));
+	public ResponseEntity<byte[]> getPopularFilms(@RequestParam(required = false) Integer count,
+												  @RequestParam(required = false) String window,
+												  @RequestParam(required = false) Integer year,
+												  @RequestParam(required = false) Integer minDuration,
+												  @RequestParam(required = false) Integer maxDuration,
+												  WebRequest request) throws JsonProcessingException {
+		int limit = count != null ? count : DEFAULT_POPULAR_FILMS_LIMIT;
+		if (window != null) {
+			if (log.isInfoEnabled()) {
+				log.info("Получен запрос на получение набирающих популярность фильмов за {}, количество: {}", window, limit);
+			}
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+					.body(filmListWriter.writeValueAsBytes(filmService.getTrendingFilms(count, window)));
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение популярных фильмов, количество: {}, год: {}, продолжительность: {}-{}",
+					limit, year, minDuration, maxDuration);
+		}
+		if (year != null || minDuration != null || maxDuration != null) {
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(filmListWriter.writeValueAsBytes(
+					filmService.getPopularFilms(count, year, minDuration, maxDuration)));
+		}
+		String etag = filmService.getPopularFilmsEtag(count);
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
+		CachedResponse cached = popularResponses.get(limit);
+		byte[] body;
+		if (cached != null && cached.etag().equals(etag)) {
+			body = cached.body();
+		} else {
+			body = filmListWriter.writeValueAsBytes(filmService.getPopularFilms(count));
+			if (limit > 0 && limit <= MAX_CACHED_POPULAR_FILMS_LIMIT) {
+				popularResponses.put(limit, new CachedResponse(etag, body));
+			}
+		}
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+	}
+
+	private record CachedResponse(String etag, byte[] body) {
 	}
 }
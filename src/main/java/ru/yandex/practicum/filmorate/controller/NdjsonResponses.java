@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Потоковые ответы в формате NDJSON: одна JSON-запись на строку.
+ * Записи сериализуются по мере обхода хранилища, поэтому память не зависит от количества записей
+ */
+final class NdjsonResponses {
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	private NdjsonResponses() {
+	}
+
+	/**
+	 * Настроить сериализатор для NDJSON: без сброса буфера после каждой записи и без закрытия выходного потока
+	 *
+	 * @param objectMapper настроенный Jackson ObjectMapper приложения
+	 * @return сериализатор записей
+	 */
+	static ObjectWriter writer(ObjectMapper objectMapper) {
+		return objectMapper.writer()
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.withRootValueSeparator("\n");
+	}
+
+	/**
+	 * Ответ, записывающий элементы потока по мере его обхода
+	 *
+	 * @param writer сериализатор записей
+	 * @param source источник потока записей, поток закрывается после выгрузки
+	 * @return потоковый ответ
+	 */
+	static <T> ResponseEntity<StreamingResponseBody> stream(ObjectWriter writer, Supplier<Stream<T>> source) {
+		StreamingResponseBody body = outputStream -> {
+			try (Stream<T> records = source.get();
+				 SequenceWriter sequenceWriter = writer.writeValues(outputStream)) {
+				Iterator<T> iterator = records.iterator();
+				while (iterator.hasNext()) {
+					sequenceWriter.write(iterator.next());
+				}
+			}
+			outputStream.write('\n');
+			outputStream.flush();
+		};
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+				.body(body);
+	}
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Неблокирующий вариант {@link FilmController} на WebFlux с теми же адресами и ошибками.
+ * Список и выгрузка фильмов читаются реактивным хранилищем по страницам с учетом скорости клиента;
+ * изменения и выборки с правилами валидации проходят через {@link FilmService} на планировщике хранилища
+ */
+@Slf4j
+@RestController
+@RequestMapping("/films")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFilmController {
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private final FilmService filmService;
+	private final Scheduler storageScheduler;
+
+
+	@Autowired
+	public ReactiveFilmController(FilmService filmService, Scheduler storageScheduler) {
+		this.filmService = filmService;
+		this.storageScheduler = storageScheduler;
+	}
+
+	/**
+	 * Создать новый фильм
+	 *
+	 * @param film фильм для создания
+	 * @return созданный фильм
+	 */
+	@PostMapping
+	public Mono<ResponseEntity<Film>> createFilm(@Valid @RequestBody Film film) {
+		log.info("Получен запрос на создание фильма: {}", film.getName());
+		return call(() -> filmService.createFilm(film))
+				.map(createdFilm -> ResponseEntity.status(HttpStatus.CREATED).body(createdFilm));
+	}
+
+	/**
+	 * Массовое создание фильмов из JSON-массива или NDJSON.
+	 * Записи читаются потоком и импортируются пакетами, ошибочные записи не прерывают импорт
+	 *
+	 * @param records фильмы в теле запроса
+	 * @return отчет импорта с id созданных фильмов и ошибками записей
+	 */
+	@PostMapping(value = "/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public Mono<ImportReport> importFilms(@RequestBody Flux<Film> records) {
+		log.info("Получен запрос на импорт фильмов");
+		return BulkImports.read(records, storageScheduler, filmService::importFilms);
+	}
+
+	/**
+	 * Массовое добавление лайков {"filmId": ..., "userId": ...} из JSON-массива или NDJSON.
+	 * Записи читаются потоком и импортируются пакетами, ошибочные записи не прерывают импорт
+	 *
+	 * @param records лайки в теле запроса
+	 * @return отчет импорта с ошибками записей
+	 */
+	@PostMapping(value = "/likes/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public Mono<ImportReport> importLikes(@RequestBody Flux<Like> records) {
+		log.info("Получен запрос на импорт лайков");
+		return BulkImports.read(records, storageScheduler, filmService::importLikes);
+	}
+
+	/**
+	 * Обновить фильм
+	 *
+	 * @param film фильм для обновления
+	 * @return обновленный фильм
+	 */
+	@PutMapping
+	public Mono<Film> updateFilm(@Valid @RequestBody Film film) {
+		log.info("Получен запрос на обновление фильма с id: {}", film.getId());
+		return call(() -> filmService.updateFilm(film));
+	}
+
+	/**
+	 * Все фильмы потоком в порядке id. Хранилище читается по страницам по мере того,
+	 * как клиент принимает ответ
+	 *
+	 * @return поток фильмов
+	 */
+	@GetMapping(params = {"!after", "!limit"})
+	public Flux<Film> getAllFilms() {
+		log.info("Получен запрос на получение всех фильмов");
+		return ReactivePaging.all(filmService::getFilmsPage, Film::getId, storageScheduler);
+	}
+
+	/**
+	 * Страница фильмов. Если страница заполнена полностью, курсор следующей страницы
+	 * возвращается в заголовке X-Next-Cursor
+	 *
+	 * @param after id последнего фильма предыдущей страницы
+	 * @param limit размер страницы
+	 * @return страница фильмов
+	 */
+	@GetMapping
+	public Mono<ResponseEntity<List<Film>>> getFilmsPage(@RequestParam(required = false) Integer after,
+														 @RequestParam(required = false) Integer limit) {
+		log.info("Получен запрос на получение страницы фильмов после id {}, размер {}", after, limit);
+		return call(() -> filmService.getFilmsPage(after, limit)).map(page -> {
+			if (page.isEmpty() || page.size() < (limit == null ? FilmService.DEFAULT_PAGE_SIZE : limit)) {
+				return ResponseEntity.ok(page);
+			}
+			return ResponseEntity.ok()
+					.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()))
+					.body(page);
+		});
+	}
+
+	/**
+	 * Потоковая выгрузка всех фильмов в формате NDJSON
+	 *
+	 * @return поток фильмов, по одному JSON на строку
+	 */
+	@GetMapping(value = "/export", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public Flux<Film> exportFilms() {
+		log.info("Получен запрос на потоковую выгрузку всех фильмов");
+		return ReactivePaging.all(filmService::getFilmsPage, Film::getId, storageScheduler);
+	}
+
+	/**
+	 * Фильм по его идентификатору
+	 *
+	 * @param id идентификатор фильма
+	 * @return найденный фильм
+	 */
+	@GetMapping("/{id}")
+	public Mono<Film> getFilmById(@PathVariable Integer id) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение фильма с id: {}", id);
+		}
+		return call(() -> filmService.getFilmById(id));
+	}
+
+	/**
+	 * Добавить лайк фильму от пользователя
+	 *
+	 * @param id идентификатор фильма
+	 * @param userId идентификатор пользователя
+	 * @return пустой ответ
+	 */
+	@PutMapping("/{id}/like/{userId}")
+	public Mono<Void> addLike(@PathVariable Integer id, @PathVariable Integer userId) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на добавление лайка: пользователь {} ставит лайк фильму {}", userId, id);
+		}
+		return run(() -> filmService.addLike(id, userId));
+	}
+
+	/**
+	 * Удалить лайк фильма от пользователя
+	 *
+	 * @param id идентификатор фильма
+	 * @param userId идентификатор пользователя
+	 * @return пустой ответ
+	 */
+	@DeleteMapping("/{id}/like/{userId}")
+	public Mono<Void> removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на удаление лайка: пользователь {} удаляет лайк фильму {}", userId, id);
+		}
+		return run(() -> filmService.removeLike(id, userId));
+	}
+
+	/**
+	 * Пакет постановок и снятий лайков [{"filmId": ..., "userId": ..., "op": "like" | "unlike"}].
+	 * Операции применяются в переданном порядке; если хоть один фильм или пользователь не найден,
+	 * пакет не применяется
+	 *
+	 * @param operations операции над лайками
+	 * @return пустой ответ
+	 */
+	@PostMapping("/likes/batch")
+	public Mono<Void> applyLikes(@RequestBody List<LikeOperation> operations) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на пакет лайков: {} операций", operations.size());
+		}
+		return run(() -> filmService.applyLikes(operations));
+	}
+
+	/**
+	 * Список самых популярных фильмов по количеству лайков.
+	 * Если список не менялся с версии из If-None-Match, возвращается 304 без тела.
+	 * С параметром window возвращаются набирающие популярность фильмы за окно без проверки ETag,
+	 * списки с фильтрами по году и продолжительности тоже отдаются без ETag
+	 *
+	 * @param count количество фильмов для возврата (если null, возвращается 10)
+	 * @param window длина окна набирающих популярность фильмов: 1h, 24h или 7d
+	 * @param year год выпуска
+	 * @param minDuration минимальная продолжительность включительно
+	 * @param maxDuration максимальная продолжительность включительно
+	 * @param exchange запрос с заголовком If-None-Match
+	 * @return поток популярных фильмов
+	 */
+	@GetMapping("/popular")
+	public Flux<Film> getPopularFilms(@RequestParam(required = false) Integer count,
+									  @RequestParam(required = false) String window,
+									  @RequestParam(required = false) Integer year,
+									  @RequestParam(required = false) Integer minDuration,
+									  @RequestParam(required = false) Integer maxDuration,
+									  ServerWebExchange exchange) {
+		if (window != null) {
+			if (log.isInfoEnabled()) {
+				log.info("Получен запрос на получение набирающих популярность фильмов за {}, количество: {}", window, count);
+			}
+			return call(() -> filmService.getTrendingFilms(count, window)).flatMapIterable(films -> films);
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение популярных фильмов, количество: {}, год: {}, продолжительность: {}-{}",
+					count, year, minDuration, maxDuration);
+		}
+		if (year != null || minDuration != null || maxDuration != null) {
+			return call(() -> filmService.getPopularFilms(count, year, minDuration, maxDuration))
+					.flatMapIterable(films -> films);
+		}
+		return call(() -> filmService.getPopularFilmsEtag(count)).flatMapMany(etag -> exchange.checkNotModified(etag)
+				? Flux.empty()
+				: call(() -> filmService.getPopularFilms(count)).flatMapIterable(films -> films));
+	}
+
+	private <T> Mono<T> call(Callable<T> action) {
+		return Mono.fromCallable(action).subscribeOn(storageScheduler);
+	}
+
+	private Mono<Void> run(Runnable action) {
+		return Mono.<Void>fromRunnable(action).subscribeOn(storageScheduler);
+	}
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Чтение всех записей реактивным потоком по страницам с курсором по id.
+ * Следующая страница запрашивается только тогда, когда подписчик разобрал предыдущую,
+ * поэтому медленный клиент не держит соединение с базой и не заставляет хранить весь список в памяти
+ */
+final class ReactivePaging {
+	static final int PAGE_SIZE = 100;
+
+	private ReactivePaging() {
+	}
+
+	/**
+	 * @param page загрузка страницы: id последней записи предыдущей страницы и размер страницы
+	 * @param idOf id записи
+	 * @param scheduler планировщик для блокирующих вызовов сервиса
+	 * @return все записи в порядке id
+	 */
+	static <T> Flux<T> all(BiFunction<Integer, Integer, List<T>> page, Function<T, Integer> idOf,
+						   Scheduler scheduler) {
+		return load(page, null, scheduler)
+				.expand(records -> records.size() < PAGE_SIZE ? Mono.empty()
+						: load(page, idOf.apply(records.get(records.size() - 1)), scheduler))
+				.concatMapIterable(records -> records, 1);
+	}
+
+	private static <T> Mono<List<T>> load(BiFunction<Integer, Integer, List<T>> page, Integer afterId,
+										  Scheduler scheduler) {
+		return Mono.fromCallable(() -> page.apply(afterId, PAGE_SIZE)).subscribeOn(scheduler);
+	}
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Сервер для режима WebFlux. Tomcat тоже есть в зависимостях (для режима Spring MVC) и Spring Boot выбрал бы его,
+ * поэтому Netty с небольшим числом потоков цикла событий задается явно
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfiguration {
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+}
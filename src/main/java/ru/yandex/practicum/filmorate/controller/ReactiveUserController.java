@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Неблокирующий вариант {@link UserController} на WebFlux с теми же адресами и ошибками.
+ * Список и выгрузка пользователей читаются реактивным хранилищем по страницам с учетом скорости клиента;
+ * изменения и выборки с правилами валидации проходят через {@link UserService} на планировщике хранилища
+ */
+@Slf4j
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private final UserService userService;
+	private final Scheduler storageScheduler;
+
+
+	@Autowired
+	public ReactiveUserController(UserService userService, Scheduler storageScheduler) {
+		this.userService = userService;
+		this.storageScheduler = storageScheduler;
+	}
+
+	/**
+	 * Создать нового пользователя
+	 *
+	 * @param user пользователь для создания
+	 * @return созданный пользователь
+	 */
+	@PostMapping
+	public Mono<ResponseEntity<User>> createUser(@Valid @RequestBody User user) {
+		log.info("Получен запрос на создание пользователя с логином: {}, именем: {}", user.getLogin(), user.getName());
+		return call(() -> userService.createUser(user))
+				.map(createdUser -> ResponseEntity.status(HttpStatus.CREATED).body(createdUser));
+	}
+
+	/**
+	 * Массовое создание пользователей из JSON-массива или NDJSON.
+	 * Записи читаются потоком и импортируются пакетами, ошибочные записи не прерывают импорт
+	 *
+	 * @param records пользователи в теле запроса
+	 * @return отчет импорта с id созданных пользователей и ошибками записей
+	 */
+	@PostMapping(value = "/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public Mono<ImportReport> importUsers(@RequestBody Flux<User> records) {
+		log.info("Получен запрос на импорт пользователей");
+		return BulkImports.read(records, storageScheduler, userService::importUsers);
+	}
+
+	/**
+	 * Массовое добавление дружб {"userId": ..., "friendId": ...} из JSON-массива или NDJSON.
+	 * Записи читаются потоком и импортируются пакетами, ошибочные записи не прерывают импорт
+	 *
+	 * @param records дружбы в теле запроса
+	 * @return отчет импорта с ошибками записей
+	 */
+	@PostMapping(value = "/friends/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public Mono<ImportReport> importFriendships(@RequestBody Flux<Friendship> records) {
+		log.info("Получен запрос на импорт дружб");
+		return BulkImports.read(records, storageScheduler, userService::importFriendships);
+	}
+
+	/**
+	 * Обновить пользователя
+	 *
+	 * @param user пользователь для обновления
+	 * @return обновленный пользователь
+	 */
+	@PutMapping
+	public Mono<User> updateUser(@Valid @RequestBody User user) {
+		log.info("Получен запрос на обновление пользователя с id: {}", user.getId());
+		return call(() -> userService.updateUser(user));
+	}
+
+	/**
+	 * Все пользователи потоком в порядке id. Хранилище читается по страницам по мере того,
+	 * как клиент принимает ответ
+	 *
+	 * @return поток пользователей
+	 */
+	@GetMapping(params = {"!after", "!limit"})
+	public Flux<User> getAllUsers() {
+		log.info("Получен запрос на получение списка всех пользователей");
+		return ReactivePaging.all(userService::getUsersPage, User::getId, storageScheduler);
+	}
+
+	/**
+	 * Страница пользователей. Если страница заполнена полностью, курсор следующей страницы
+	 * возвращается в заголовке X-Next-Cursor
+	 *
+	 * @param after id последнего пользователя предыдущей страницы
+	 * @param limit размер страницы
+	 * @return страница пользователей
+	 */
+	@GetMapping
+	public Mono<ResponseEntity<List<User>>> getUsersPage(@RequestParam(required = false) Integer after,
+														 @RequestParam(required = false) Integer limit) {
+		log.info("Получен запрос на получение страницы пользователей после id {}, размер {}", after, limit);
+		return call(() -> userService.getUsersPage(after, limit)).map(page -> {
+			if (page.isEmpty() || page.size() < (limit == null ? UserService.DEFAULT_PAGE_SIZE : limit)) {
+				return ResponseEntity.ok(page);
+			}
+			return ResponseEntity.ok()
+					.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()))
+					.body(page);
+		});
+	}
+
+	/**
+	 * Потоковая выгрузка всех пользователей в формате NDJSON
+	 *
+	 * @return поток пользователей, по одному JSON на строку
+	 */
+	@GetMapping(value = "/export", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public Flux<User> exportUsers() {
+		log.info("Получен запрос на потоковую выгрузку всех пользователей");
+		return ReactivePaging.all(userService::getUsersPage, User::getId, storageScheduler);
+	}
+
+	/**
+	 * Пользователь по его идентификатору
+	 *
+	 * @param id идентификатор пользователя
+	 * @return найденный пользователь
+	 */
+	@GetMapping("/{id}")
+	public Mono<User> getUserById(@PathVariable Integer id) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение пользователя с id: {}", id);
+		}
+		return call(() -> userService.getUserById(id));
+	}
+
+	/**
+	 * Добавить пользователя в друзья другому пользователю
+	 *
+	 * @param id идентификатор пользователя
+	 * @param friendId идентификатор друга
+	 * @return пустой ответ
+	 */
+	@PutMapping("/{id}/friends/{friendId}")
+	public Mono<Void> addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на добавление в друзья: пользователь {} добавляет пользователя {}", id, friendId);
+		}
+		return run(() -> userService.addFriend(id, friendId));
+	}
+
+	/**
+	 * Удалить пользователя из друзей другого пользователя
+	 *
+	 * @param id идентификатор пользователя
+	 * @param friendId идентификатор друга
+	 * @return пустой ответ
+	 */
+	@DeleteMapping("/{id}/friends/{friendId}")
+	public Mono<Void> removeFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на удаление из друзей: пользователь {} удаляет пользователя {}", id, friendId);
+		}
+		return run(() -> userService.removeFriend(id, friendId));
+	}
+
+	/**
+	 * Список друзей пользователя.
+	 * Если список не менялся с версии из If-None-Match, возвращается 304 без тела
+	 *
+	 * @param id идентификатор пользователя
+	 * @param exchange запрос с заголовком If-None-Match
+	 * @return поток друзей пользователя
+	 */
+	@GetMapping("/{id}/friends")
+	public Flux<User> getFriends(@PathVariable Integer id, ServerWebExchange exchange) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение списка друзей пользователя с id: {}", id);
+		}
+		return call(() -> userService.getFriendsEtag(id)).flatMapMany(etag -> exchange.checkNotModified(etag)
+				? Flux.empty()
+				: call(() -> userService.getFriends(id)).flatMapIterable(users -> users));
+	}
+
+	/**
+	 * Список общих друзей пользователей
+	 *
+	 * @param id идентификатор первого пользователя
+	 * @param otherId идентификатор второго пользователя
+	 * @return поток общих друзей
+	 */
+	@GetMapping("/{id}/friends/common/{otherId}")
+	public Flux<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
+		}
+		return call(() -> userService.getCommonFriends(id, otherId)).flatMapIterable(users -> users);
+	}
+
+	/**
+	 * Рекомендации друзей по количеству общих друзей
+	 *
+	 * @param id идентификатор пользователя
+	 * @param limit максимальное количество рекомендаций (если null, возвращается 10)
+	 * @return поток рекомендованных пользователей
+	 */
+	@GetMapping("/{id}/recommendations")
+	public Flux<User> getFriendRecommendations(@PathVariable Integer id,
+											   @RequestParam(required = false) Integer limit) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на рекомендации друзей пользователя {}, количество: {}", id, limit);
+		}
+		return call(() -> userService.getFriendRecommendations(id, limit)).flatMapIterable(users -> users);
+	}
+
+	private <T> Mono<T> call(Callable<T> action) {
+		return Mono.fromCallable(action).subscribeOn(storageScheduler);
+	}
+
+	private Mono<Void> run(Runnable action) {
+		return Mono.<Void>fromRunnable(action).subscribeOn(storageScheduler);
+	}
+}
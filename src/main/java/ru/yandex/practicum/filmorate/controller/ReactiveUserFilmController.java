@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Неблокирующий вариант {@link UserFilmController} на WebFlux с теми же адресами и ошибками
+ */
+@Slf4j
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserFilmController {
+	private final FilmService filmService;
+	private final Scheduler storageScheduler;
+
+
+	@Autowired
+	public ReactiveUserFilmController(FilmService filmService, Scheduler storageScheduler) {
+		this.filmService = filmService;
+		this.storageScheduler = storageScheduler;
+	}
+
+	/**
+	 * Фильмы, которым пользователь поставил лайк
+	 *
+	 * @param id идентификатор пользователя
+	 * @return поток фильмов в порядке id
+	 */
+	@GetMapping("/{id}/likes")
+	public Flux<Film> getLikedFilms(@PathVariable Integer id) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение фильмов с лайком пользователя {}", id);
+		}
+		return call(() -> filmService.getLikedFilms(id)).flatMapIterable(films -> films);
+	}
+
+	/**
+	 * Снять все лайки пользователя
+	 *
+	 * @param id идентификатор пользователя
+	 * @return пустой ответ
+	 */
+	@DeleteMapping("/{id}/likes")
+	public Mono<Void> removeUserLikes(@PathVariable Integer id) {
+		log.info("Получен запрос на снятие всех лайков пользователя {}", id);
+		return run(() -> filmService.removeUserLikes(id));
+	}
+
+	/**
+	 * Рекомендации фильмов по лайкам пользователей с похожими вкусами
+	 *
+	 * @param id идентификатор пользователя
+	 * @param limit максимальное количество фильмов (если null, возвращается 10)
+	 * @return поток рекомендованных фильмов
+	 */
+	@GetMapping("/{id}/films/recommended")
+	public Flux<Film> getRecommendedFilms(@PathVariable Integer id, @RequestParam(required = false) Integer limit) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на рекомендации фильмов для пользователя {}, количество: {}", id, limit);
+		}
+		return call(() -> filmService.getRecommendedFilms(id, limit)).flatMapIterable(films -> films);
+	}
+
+	private <T> Mono<T> call(Callable<T> action) {
+		return Mono.fromCallable(action).subscribeOn(storageScheduler);
+	}
+
+	private Mono<Void> run(Runnable action) {
+		return Mono.<Void>fromRunnable(action).subscribeOn(storageScheduler);
+	}
+}
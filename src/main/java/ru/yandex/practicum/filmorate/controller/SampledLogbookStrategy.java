@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.ForwardingHttpRequest;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+import org.zalando.logbook.attributes.AttributeExtractor;
+import org.zalando.logbook.attributes.HttpAttributes;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выборочное журналирование запросов Logbook (logbook.strategy: sampled): запрос и ответ целиком
+ * записываются для каждого N-го запроса, а медленные запросы — без тел запроса и ответа.
+ * Тела копируются в буфер только у попавших в выборку запросов.
+ * Решение о выборке принимается один раз при получении запроса и передается в атрибутах запроса Logbook
+ */
+@Component
+@ConditionalOnProperty(name = "logbook.strategy", havingValue = "sampled")
+public class SampledLogbookStrategy implements Strategy, AttributeExtractor {
+	private static final String SAMPLED_ATTRIBUTE = "sampled";
+
+	private final long sampleRate;
+	private final Duration slowThreshold;
+	private final AtomicLong requests = new AtomicLong();
+
+
+	public SampledLogbookStrategy(@Value("${filmorate.logbook.sample-rate}") long sampleRate,
+								  @Value("${filmorate.logbook.slow-threshold}") Duration slowThreshold) {
+		if (sampleRate <= 0) {
+			throw new IllegalArgumentException("Частота выборки запросов должна быть положительной: " + sampleRate);
+		}
+		this.sampleRate = sampleRate;
+		this.slowThreshold = slowThreshold;
+	}
+
+
+	/**
+	 * Logbook вызывает извлечение атрибутов с запросом, который вернул {@link #process(HttpRequest)},
+	 * поэтому решение о выборке передается через обертку запроса
+	 */
+	@Override
+	public HttpAttributes extract(HttpRequest request) {
+		return HttpAttributes.of(SAMPLED_ATTRIBUTE, request instanceof SampledRequest);
+	}
+
+
+	/**
+	 * Тело запроса копируется в буфер только для выборки. Медленный запрос становится известен
+	 * только после ответа, когда тело уже прочитано, поэтому он пишется без тела
+	 */
+	@Override
+	public HttpRequest process(HttpRequest request) throws IOException {
+		if (requests.getAndIncrement() % sampleRate == 0) {
+			return new SampledRequest(request.withBody());
+		}
+		return request.withoutBody();
+	}
+
+
+	@Override
+	public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+		// запрос пишется вместе с ответом, когда известны выборка и длительность
+	}
+
+
+	@Override
+	public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+		return isSampled(request) ? response.withBody() : response.withoutBody();
+	}
+
+
+	@Override
+	public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+			throws IOException {
+		if (isSampled(request) || correlation.getDuration().compareTo(slowThreshold) >= 0) {
+			sink.writeBoth(correlation, request, response);
+		}
+	}
+
+
+	private static boolean isSampled(HttpRequest request) {
+		return Boolean.TRUE.equals(request.getAttributes().get(SAMPLED_ATTRIBUTE));
+	}
+
+
+	private record SampledRequest(HttpRequest delegate) implements ForwardingHttpRequest {
+	}
+}
@@ -1,27 +1,47 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ImportReport;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
 	private final UserService userService;
+	private final ObjectWriter ndjsonWriter;
+	private final ObjectReader userReader;
+	private final ObjectReader friendshipReader;
 
 
 	@Autowired
-	public UserController(UserService userService) {
+	public UserController(UserService userService, ObjectMapper objectMapper) {
 		this.userService = userService;
+		this.ndjsonWriter = NdjsonResponses.writer(objectMapper);
+		this.userReader = objectMapper.readerFor(User.class);
+		this.friendshipReader = objectMapper.readerFor(Friendship.class);
 	}
 
 	/**
@@ -38,6 +58,37 @@ public class UserController {
 		return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
 	}
 
+	/**
+	 * Массовое создание пользователей из JSON-массива или NDJSON. Пользователи проверяются по тем же правилам,
+	 * что и при создании по одному; ошибочные записи не прерывают импорт
+	 *
+	 * @param body пользователи в теле запроса
+	 * @return отчет импорта с id созданных пользователей и ошибками записей
+	 */
+	@PostMapping(value = "/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public ImportReport importUsers(InputStream body) throws IOException {
+		log.info("Получен запрос на импорт пользователей");
+		ImportReport report = BulkImports.read(userReader, body, userService::importUsers);
+		log.info("Импорт пользователей завершен: сохранено {}, отклонено {}", report.getImported(), report.getFailed());
+		return report;
+	}
+
+	/**
+	 * Массовое добавление дружб {"userId": ..., "friendId": ...} из JSON-массива или NDJSON
+	 *
+	 * @param body дружбы в теле запроса
+	 * @return отчет импорта с ошибками записей
+	 */
+	@PostMapping(value = "/friends/import",
+			consumes = {MediaType.APPLICATION_JSON_VALUE, NdjsonResponses.APPLICATION_NDJSON_VALUE})
+	public ImportReport importFriendships(InputStream body) throws IOException {
+		log.info("Получен запрос на импорт дружб");
+		ImportReport report = BulkImports.read(friendshipReader, body, userService::importFriendships);
+		log.info("Импорт дружб завершен: сохранено {}, отклонено {}", report.getImported(), report.getFailed());
+		return report;
+	}
+
 	/**
 	 * Обновить пользователя
 	 *
@@ -53,14 +104,40 @@ public class UserController {
 	}
 
 	/**
-	 * Список всех пользователей
+	 * Список всех пользователей или страница пользователей, если передан курсор или размер страницы.
+	 * Если страница заполнена полностью, курсор следующей страницы
+	 * возвращается в заголовке X-Next-Cursor
 	 *
-	 * @return список всех пользователей
+	 * @param after id последнего пользователя предыдущей страницы
+	 * @param limit размер страницы
+	 * @return список пользователей
 	 */
 	@GetMapping
-	public ResponseEntity<List<User>> getAllUsers() {
-		log.info("Получен запрос на получение списка всех пользователей");
-		return ResponseEntity.ok(userService.getAllUsers());
+	public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Integer after,
+												  @RequestParam(required = false) Integer limit) {
+		if (after == null && limit == null) {
+			log.info("Получен запрос на получение списка всех пользователей");
+			return ResponseEntity.ok(userService.getAllUsers());
+		}
+		log.info("Получен запрос на получение страницы пользователей после id {}, размер {}", after, limit);
+		List<User> page = userService.getUsersPage(after, limit);
+		if (page.isEmpty() || page.size() < (limit == null ? UserService.DEFAULT_PAGE_SIZE : limit)) {
+			return ResponseEntity.ok(page);
+		}
+		return ResponseEntity.ok()
+				.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()))
+				.body(page);
+	}
+
+	/**
+	 * Потоковая выгрузка всех пользователей в формате NDJSON
+	 *
+	 * @return ответ, в котором записи пишутся по мере обхода хранилища
+	 */
+	@GetMapping(value = "/export", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportUsers() {
+		log.info("Получен запрос на потоковую выгрузку всех пользователей");
+		return NdjsonResponses.stream(ndjsonWriter, userService::streamAllUsers);
 	}
 
 	/**
@@ -71,7 +148,9 @@ public class UserController {
 	 */
 	@GetMapping("/{id}")
 	public ResponseEntity<User> getUserById(@PathVariable Integer id) {
-		log.info("Получен запрос на получение пользователя с id: {}", id);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение пользователя с id: {}", id);
+		}
 		return ResponseEntity.ok(userService.getUserById(id));
 	}
 
@@ -84,7 +163,9 @@ public class UserController {
 	 */
 	@PutMapping("/{id}/friends/{friendId}")
 	public ResponseEntity<Void> addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
-		log.info("Получен запрос на добавление в друзья: пользователь {} добавляет пользователя {}", id, friendId);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на добавление в друзья: пользователь {} добавляет пользователя {}", id, friendId);
+		}
 		userService.addFriend(id, friendId);
 		return ResponseEntity.ok().build();
 	}
@@ -98,20 +179,29 @@ public class UserController {
 	 */
 	@DeleteMapping("/{id}/friends/{friendId}")
 	public ResponseEntity<Void> removeFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
-		log.info("Получен запрос на удаление из друзей: пользователь {} удаляет пользователя {}", id, friendId);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на удаление из друзей: пользователь {} удаляет пользователя {}", id, friendId);
+		}
 		userService.removeFriend(id, friendId);
 		return ResponseEntity.ok().build();
 	}
 
 	/**
-	 * Список друзей пользователя
+	 * Список друзей пользователя.
+	 * Если список не менялся с версии из If-None-Match, возвращается 304 без тела
 	 *
 	 * @param id идентификатор пользователя
+	 * @param request запрос с заголовком If-None-Match
 	 * @return список друзей пользователя
 	 */
 	@GetMapping("/{id}/friends")
-	public ResponseEntity<List<User>> getFriends(@PathVariable Integer id) {
-		log.info("Получен запрос на получение списка друзей пользователя с id: {}", id);
+	public ResponseEntity<List<User>> getFriends(@PathVariable Integer id, WebRequest request) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение списка друзей пользователя с id: {}", id);
+		}
+		if (request.checkNotModified(userService.getFriendsEtag(id))) {
+			return null;
+		}
 		return ResponseEntity.ok(userService.getFriends(id));
 	}
 
@@ -124,7 +214,25 @@ public class UserController {
 	 */
 	@GetMapping("/{id}/friends/common/{otherId}")
 	public ResponseEntity<List<User>> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
-		log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
+		}
 		return ResponseEntity.ok(userService.getCommonFriends(id, otherId));
 	}
+
+	/**
+	 * Рекомендации друзей по количеству общих друзей
+	 *
+	 * @param id идентификатор пользователя
+	 * @param limit максимальное количество рекомендаций (если null, возвращается 10)
+	 * @return список рекомендованных пользователей
+	 */
+	@GetMapping("/{id}/recommendations")
+	public ResponseEntity<List<User>> getFriendRecommendations(@PathVariable Integer id,
+															   @RequestParam(required = false) Integer limit) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на рекомендации друзей пользователя {}, количество: {}", id, limit);
+		}
+		return ResponseEntity.ok(userService.getFriendRecommendations(id, limit));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+/**
+ * Фильмы в разрезе пользователя: запросы по адресам /users/{id}/..., которые обслуживает {@link FilmService}
+ */
+@Slf4j
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserFilmController {
+	private final FilmService filmService;
+
+
+	@Autowired
+	public UserFilmController(FilmService filmService) {
+		this.filmService = filmService;
+	}
+
+	/**
+	 * Фильмы, которым пользователь поставил лайк
+	 *
+	 * @param id идентификатор пользователя
+	 * @return список фильмов в порядке id
+	 */
+	@GetMapping("/{id}/likes")
+	public ResponseEntity<List<Film>> getLikedFilms(@PathVariable Integer id) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на получение фильмов с лайком пользователя {}", id);
+		}
+		return ResponseEntity.ok(filmService.getLikedFilms(id));
+	}
+
+	/**
+	 * Снять все лайки пользователя
+	 *
+	 * @param id идентификатор пользователя
+	 * @return пустой ответ
+	 */
+	@DeleteMapping("/{id}/likes")
+	public ResponseEntity<Void> removeUserLikes(@PathVariable Integer id) {
+		log.info("Получен запрос на снятие всех лайков пользователя {}", id);
+		filmService.removeUserLikes(id);
+		return ResponseEntity.ok().build();
+	}
+
+	/**
+	 * Рекомендации фильмов по лайкам пользователей с похожими вкусами
+	 *
+	 * @param id идентификатор пользователя
+	 * @param limit максимальное количество фильмов (если null, возвращается 10)
+	 * @return список рекомендованных фильмов
+	 */
+	@GetMapping("/{id}/films/recommended")
+	public ResponseEntity<List<Film>> getRecommendedFilms(@PathVariable Integer id,
+														  @RequestParam(required = false) Integer limit) {
+		if (log.isInfoEnabled()) {
+			log.info("Получен запрос на рекомендации фильмов для пользователя {}, количество: {}", id, limit);
+		}
+		return ResponseEntity.ok(filmService.getRecommendedFilms(id, limit));
+	}
+}
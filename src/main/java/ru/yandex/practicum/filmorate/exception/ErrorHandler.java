@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -13,10 +16,24 @@ import java.util.Map;
 @Slf4j
 @RestControllerAdvice
 public class ErrorHandler {
-	public static final String VALIDATION_ERROR = "Ошибка валидации";
-	public static final String NOT_FOUND_ERROR = "Объект не найден";
+	public static final String VALIDATION_ERROR = ValidationException.ERROR;
+	public static final String NOT_FOUND_ERROR = NotFoundException.ERROR;
 	public static final String INTERNAL_ERROR = "Внутренняя ошибка сервера";
 
+	private static final String ERRORS_METRIC = "filmorate.errors";
+
+	private final Counter validationErrors;
+	private final Counter notFoundErrors;
+	private final Counter internalErrors;
+
+
+	@Autowired
+	public ErrorHandler(MeterRegistry meterRegistry) {
+		validationErrors = errorsCounter(meterRegistry, ValidationException.class);
+		notFoundErrors = errorsCounter(meterRegistry, NotFoundException.class);
+		internalErrors = errorsCounter(meterRegistry, Exception.class);
+	}
+
 	/**
 	 * Возвращает код 400 (Bad Request)
 	 *
@@ -26,6 +43,7 @@ public class ErrorHandler {
 	@ExceptionHandler(ValidationException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public Map<String, String> handleValidationException(ValidationException e) {
+		validationErrors.increment();
 		log.error("{}: {}", VALIDATION_ERROR, e.getMessage());
 		return Map.of("error", VALIDATION_ERROR, "message", e.getMessage());
 	}
@@ -39,6 +57,7 @@ public class ErrorHandler {
 	@ExceptionHandler(NotFoundException.class)
 	@ResponseStatus(HttpStatus.NOT_FOUND)
 	public Map<String, String> handleNotFoundException(NotFoundException e) {
+		notFoundErrors.increment();
 		log.error("{}: {}", NOT_FOUND_ERROR, e.getMessage());
 		return Map.of("error", NOT_FOUND_ERROR, "message", e.getMessage());
 	}
@@ -52,7 +71,15 @@ public class ErrorHandler {
 	@ExceptionHandler(Exception.class)
 	@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
 	public Map<String, String> handleException(Exception e) {
+		internalErrors.increment();
 		log.error("{}: {}", INTERNAL_ERROR, e.getMessage(), e);
 		return Map.of("error", INTERNAL_ERROR, "message", e.getMessage());
 	}
+
+	private static Counter errorsCounter(MeterRegistry meterRegistry, Class<? extends Exception> exceptionType) {
+		return Counter.builder(ERRORS_METRIC)
+				.description("Количество ошибок, возвращенных клиентам")
+				.tag("exception", exceptionType.getSimpleName())
+				.register(meterRegistry);
+	}
 }
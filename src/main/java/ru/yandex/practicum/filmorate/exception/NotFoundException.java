@@ -4,6 +4,9 @@ package ru.yandex.practicum.filmorate.exception;
  * Исключение для обработки ошибок когда объект не найден
  */
 public class NotFoundException extends RuntimeException {
+	/** Тип ошибки в ответах и отчетах импорта */
+	public static final String ERROR = "Объект не найден";
+
 	public NotFoundException(String message) {
 		super(message);
 	}
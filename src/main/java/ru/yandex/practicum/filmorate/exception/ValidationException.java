@@ -4,6 +4,9 @@ package ru.yandex.practicum.filmorate.exception;
  * Исключение для обработки ошибок валидации данных
  */
 public class ValidationException extends RuntimeException {
+	/** Тип ошибки в ответах и отчетах импорта */
+	public static final String ERROR = "Ошибка валидации";
+
 	public ValidationException(String message) {
 		super(message);
 	}
@@ -3,8 +3,6 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.Data;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 
 @Data
@@ -15,5 +13,9 @@ public class Film {
 	private LocalDate releaseDate;
 	private Integer duration;
 	/** Множество id пользователей, поставивших лайк фильму */
-	private Set<Long> likes = new HashSet<>();
+	private IdSet likes = new IdSet();
+
+	public void setLikes(IdSet likes) {
+		this.likes = likes != null ? likes : new IdSet();
+	}
 }
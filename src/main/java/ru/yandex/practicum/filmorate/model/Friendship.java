@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Дружба двух пользователей, симметричная как и {@link User#getFriends()}
+ *
+ * @param userId идентификатор пользователя
+ * @param friendId идентификатор друга
+ */
+public record Friendship(Integer userId, Integer friendId) {
+}
@@ -0,0 +1,370 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.lang.invoke.VarHandle;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Множество идентификаторов на примитивах: открытая адресация с линейным пробированием по массиву int.
+ * Занимает около 8 байт на элемент вместо 40+ у {@code HashSet<Long>} и не создает объектов при
+ * добавлении, удалении и проверке. В JSON сериализуется так же, как обычное множество чисел.
+ * <p>
+ * Изменения должны выполняться под внешней блокировкой владельца множества (хранилища).
+ * Чтение возможно без блокировок: запись делает версию нечетной на время изменения таблицы,
+ * а читатель сверяет версию до и после чтения и повторяет его, если в это время шла запись
+ * (как оптимистичное чтение {@link java.util.concurrent.locks.StampedLock}). Поэтому читатель
+ * видит согласованное, но возможно не самое свежее состояние, в том числе во время удаления со сдвигом
+ */
+public class IdSet extends AbstractSet<Integer> {
+	private static final int FREE = 0;
+	private static final int MIN_CAPACITY = 4;
+	private static final int GALLOP_RATIO = 16;
+	private static final int[] EMPTY_TABLE = new int[0];
+
+	private volatile int[] table = EMPTY_TABLE;
+	private volatile boolean containsFree;
+	private volatile int size;
+	/** Версия множества: нечетная, пока идет запись */
+	private volatile int modCount;
+	private volatile Snapshot sorted;
+
+
+	public IdSet() {
+	}
+
+	/**
+	 * Множество из указанных идентификаторов
+	 *
+	 * @param ids идентификаторы
+	 * @return новое множество
+	 */
+	public static IdSet of(int... ids) {
+		IdSet set = new IdSet();
+		for (int id : ids) {
+			set.add(id);
+		}
+		return set;
+	}
+
+	/**
+	 * Добавить идентификатор
+	 *
+	 * @param id идентификатор
+	 * @return true, если идентификатора не было в множестве
+	 */
+	public boolean add(int id) {
+		if (id == FREE ? containsFree : indexOf(table, id) >= 0) {
+			return false;
+		}
+		beginWrite();
+		if (id == FREE) {
+			containsFree = true;
+		} else {
+			int[] t = table;
+			if (t.length == 0 || (size + 1) * 2 > t.length) {
+				t = resize(Math.max(MIN_CAPACITY, t.length * 2));
+			}
+			int mask = t.length - 1;
+			int index = mix(id) & mask;
+			while (t[index] != FREE) {
+				index = (index + 1) & mask;
+			}
+			t[index] = id;
+		}
+		endWrite(size + 1);
+		return true;
+	}
+
+	/**
+	 * Удалить идентификатор
+	 *
+	 * @param id идентификатор
+	 * @return true, если идентификатор был в множестве
+	 */
+	public boolean remove(int id) {
+		if (id == FREE) {
+			if (!containsFree) {
+				return false;
+			}
+			beginWrite();
+			containsFree = false;
+			endWrite(size - 1);
+			return true;
+		}
+		int[] t = table;
+		int index = indexOf(t, id);
+		if (index < 0) {
+			return false;
+		}
+		beginWrite();
+		// удаление со сдвигом назад: цепочки пробирования остаются непрерывными без "надгробий"
+		int mask = t.length - 1;
+		int gap = index;
+		int i = index;
+		while (true) {
+			i = (i + 1) & mask;
+			int key = t[i];
+			if (key == FREE) {
+				break;
+			}
+			int home = mix(key) & mask;
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				t[gap] = key;
+				gap = i;
+			}
+		}
+		t[gap] = FREE;
+		endWrite(size - 1);
+		return true;
+	}
+
+	/**
+	 * Проверить наличие идентификатора
+	 *
+	 * @param id идентификатор
+	 * @return true, если идентификатор есть в множестве
+	 */
+	public boolean contains(int id) {
+		if (id == FREE) {
+			return containsFree;
+		}
+		while (true) {
+			int version = beginRead();
+			boolean found = indexOf(table, id) >= 0;
+			if (validate(version)) {
+				return found;
+			}
+		}
+	}
+
+	/**
+	 * Идентификаторы множества, отсортированные по возрастанию.
+	 * Результат кэшируется до следующего изменения множества, изменять возвращаемый массив нельзя
+	 *
+	 * @return отсортированный массив идентификаторов
+	 */
+	public int[] toSortedArray() {
+		while (true) {
+			int version = beginRead();
+			Snapshot snapshot = sorted;
+			if (snapshot != null && snapshot.version() == version) {
+				return snapshot.ids();
+			}
+			int[] ids = copyIds();
+			if (validate(version)) {
+				Arrays.sort(ids);
+				sorted = new Snapshot(version, ids);
+				return ids;
+			}
+		}
+	}
+
+	/**
+	 * Пересечение с другим множеством
+	 *
+	 * @param other другое множество
+	 * @return отсортированный массив общих идентификаторов
+	 */
+	public int[] intersect(IdSet other) {
+		return intersectSorted(toSortedArray(), other.toSortedArray());
+	}
+
+	/**
+	 * Пересечение двух отсортированных массивов идентификаторов. Обход ведется по меньшему массиву;
+	 * если больший массив намного длиннее, позиция в нем ищется галопирующим поиском,
+	 * который перескакивает длинные участки без совпадений за логарифмическое время
+	 *
+	 * @param first первый отсортированный массив
+	 * @param second второй отсортированный массив
+	 * @return отсортированный массив общих идентификаторов
+	 */
+	public static int[] intersectSorted(int[] first, int[] second) {
+		int[] small = first.length <= second.length ? first : second;
+		int[] large = small == first ? second : first;
+		int[] result = new int[small.length];
+		int count = 0;
+		if ((long) small.length * GALLOP_RATIO < large.length) {
+			int from = 0;
+			for (int i = 0; i < small.length && from < large.length; i++) {
+				from = gallop(large, from, small[i]);
+				if (from < large.length && large[from] == small[i]) {
+					result[count++] = small[i];
+					from++;
+				}
+			}
+		} else {
+			int i = 0;
+			int j = 0;
+			while (i < small.length && j < large.length) {
+				if (small[i] < large[j]) {
+					i++;
+				} else if (small[i] > large[j]) {
+					j++;
+				} else {
+					result[count++] = small[i];
+					i++;
+					j++;
+				}
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	@Override
+	public boolean add(Integer id) {
+		return add(id.intValue());
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof Integer id && remove(id.intValue());
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer id && contains(id.intValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		beginWrite();
+		table = EMPTY_TABLE;
+		containsFree = false;
+		endWrite(0);
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		int[] ids = toSortedArray();
+		return new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < ids.length;
+			}
+
+			@Override
+			public Integer next() {
+				if (next >= ids.length) {
+					throw new NoSuchElementException();
+				}
+				return ids[next++];
+			}
+		};
+	}
+
+	/**
+	 * Скопировать идентификаторы без сортировки. Копия годится, только если за время копирования не было записи
+	 */
+	private int[] copyIds() {
+		int[] t = table;
+		int[] ids = new int[size];
+		int count = 0;
+		if (containsFree && count < ids.length) {
+			ids[count++] = FREE;
+		}
+		for (int i = 0; i < t.length && count < ids.length; i++) {
+			if (t[i] != FREE) {
+				ids[count++] = t[i];
+			}
+		}
+		return count < ids.length ? Arrays.copyOf(ids, count) : ids;
+	}
+
+	private void beginWrite() {
+		modCount++;
+		// записи в таблицу не должны стать видны раньше нечетной версии
+		VarHandle.storeStoreFence();
+	}
+
+	private void endWrite(int newSize) {
+		size = newSize;
+		modCount++;
+	}
+
+	private int beginRead() {
+		int version = modCount;
+		while ((version & 1) != 0) {
+			Thread.onSpinWait();
+			version = modCount;
+		}
+		return version;
+	}
+
+	/**
+	 * Проверить, что за время чтения не было записи
+	 */
+	private boolean validate(int version) {
+		// чтения таблицы не должны переместиться после повторного чтения версии
+		VarHandle.acquireFence();
+		return modCount == version;
+	}
+
+	private int[] resize(int capacity) {
+		int[] old = table;
+		int[] t = new int[capacity];
+		int mask = capacity - 1;
+		for (int key : old) {
+			if (key != FREE) {
+				int index = mix(key) & mask;
+				while (t[index] != FREE) {
+					index = (index + 1) & mask;
+				}
+				t[index] = key;
+			}
+		}
+		table = t;
+		return t;
+	}
+
+	private static int indexOf(int[] t, int id) {
+		if (t.length == 0) {
+			return -1;
+		}
+		int mask = t.length - 1;
+		int index = mix(id) & mask;
+		for (int probes = 0; probes < t.length; probes++) {
+			int key = t[index];
+			if (key == id) {
+				return index;
+			}
+			if (key == FREE) {
+				return -1;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Первая позиция не раньше from, где значение не меньше key
+	 */
+	private static int gallop(int[] ids, int from, int key) {
+		int step = 1;
+		int low = from;
+		int high = from;
+		while (high < ids.length && ids[high] < key) {
+			low = high + 1;
+			high = from + step;
+			step <<= 1;
+		}
+		int index = Arrays.binarySearch(ids, low, Math.min(high + 1, ids.length), key);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private static int mix(int id) {
+		int hash = id * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private record Snapshot(int version, int[] ids) {
+	}
+}
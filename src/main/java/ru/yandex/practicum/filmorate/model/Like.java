@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Лайк фильму от пользователя
+ *
+ * @param filmId идентификатор фильма
+ * @param userId идентификатор пользователя
+ */
+public record Like(Integer filmId, Integer userId) {
+}
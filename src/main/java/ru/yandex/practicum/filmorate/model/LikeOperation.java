@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Постановка или снятие лайка фильму от пользователя в пакетном запросе
+ *
+ * @param filmId идентификатор фильма
+ * @param userId идентификатор пользователя
+ * @param op операция
+ */
+public record LikeOperation(Integer filmId, Integer userId, Operation op) {
+
+	public enum Operation {
+		@JsonProperty("like")
+		LIKE,
+		@JsonProperty("unlike")
+		UNLIKE
+	}
+}
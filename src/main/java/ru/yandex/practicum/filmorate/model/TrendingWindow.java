@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.Duration;
+
+/**
+ * Окно, за которое считаются лайки в списке набирающих популярность фильмов.
+ * Рейтинг поддерживается заранее для каждого окна, поэтому набор окон фиксирован
+ */
+public enum TrendingWindow {
+	HOUR(Duration.ofHours(1)),
+	DAY(Duration.ofHours(24)),
+	WEEK(Duration.ofDays(7));
+
+	private final Duration duration;
+
+	TrendingWindow(Duration duration) {
+		this.duration = duration;
+	}
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Окно указанной длины
+	 *
+	 * @param duration длина окна
+	 * @return окно или null, если окна такой длины нет
+	 */
+	public static TrendingWindow of(Duration duration) {
+		for (TrendingWindow window : values()) {
+			if (window.duration.equals(duration)) {
+				return window;
+			}
+		}
+		return null;
+	}
+}
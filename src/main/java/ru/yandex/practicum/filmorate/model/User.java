@@ -3,8 +3,6 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.Data;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 
 @Data
@@ -15,5 +13,9 @@ public class User {
 	private String name;
 	private LocalDate birthday;
 	/** Множество id друзей пользователя для обеспечения уникальности (нельзя добавить одного человека в друзья дважды) */
-	private Set<Long> friends = new HashSet<>();
+	private IdSet friends = new IdSet();
+
+	public void setFriends(IdSet friends) {
+		this.friends = friends != null ? friends : new IdSet();
+	}
 }
@@ -1,24 +1,35 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Сервис для работы с фильмами
  */
 @Slf4j
 @Service
+@Timed("filmorate.service")
 public class FilmService {
 	private static final String VALIDATION_ERROR_PREFIX = "Ошибка валидации: ";
 	private static final String FILM_NOT_FOUND = "Фильм с id {} не найден";
@@ -26,14 +37,24 @@ public class FilmService {
 	private static final String USER_NOT_FOUND_MESSAGE = "Пользователь с id ";
 
 	private static final int DEFAULT_POPULAR_FILMS_LIMIT = 10;
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int MAX_LIKE_BATCH_SIZE = 10000;
+	private static final int DEFAULT_RECOMMENDATIONS_LIMIT = 10;
+	private static final int MAX_RECOMMENDATIONS_LIMIT = 100;
+	private static final String SUPPORTED_TRENDING_WINDOWS = "1h, 24h, 7d";
 	private static final int MAX_FILM_DESCRIPTION_LENGTH = 200;
 	private static final int MIN_RELEASE_YEAR = 1895;
 	private static final int MIN_RELEASE_MONTH = 12;
 	private static final int MIN_RELEASE_DAY = 28;
 	private static final int MIN_DURATION_VALUE = 0;
 
+	private static final int POPULAR_FILMS_VERSION = 0;
+
 	private final FilmStorage filmStorage;
 	private final UserStorage userStorage;
+	/** Версия списка популярных фильмов: меняется при создании и обновлении фильмов и при изменении лайков */
+	private final ResourceVersions popularVersions = new ResourceVersions(1);
 
 
 	@Autowired
@@ -52,10 +73,38 @@ public class FilmService {
 		log.debug("Создаем фильм: {}", film.getName());
 		validateFilm(film);
 		Film createdFilm = filmStorage.addFilm(film);
+		popularVersions.bump(POPULAR_FILMS_VERSION);
 		log.debug("Фильм создан  id: {}", createdFilm.getId());
 		return createdFilm;
 	}
 
+	/**
+	 * Импортировать пакет фильмов. Фильмы проверяются по тем же правилам, что и при создании,
+	 * ошибочные записи попадают в отчет, остальные сохраняются в хранилище одним пакетом
+	 *
+	 * @param records записи пакета
+	 * @param report отчет импорта
+	 */
+	public void importFilms(List<ImportRecord<Film>> records, ImportReport report) {
+		log.debug("Импортируем пакет фильмов: {} записей", records.size());
+		List<Film> films = new ArrayList<>(records.size());
+		for (ImportRecord<Film> record : records) {
+			try {
+				validateFilm(record.value());
+				films.add(record.value());
+			} catch (ValidationException e) {
+				report.failed(record.number(), ValidationException.ERROR, e.getMessage());
+			}
+		}
+		if (films.isEmpty()) {
+			return;
+		}
+		for (Film film : filmStorage.addFilms(films)) {
+			report.created(film.getId());
+		}
+		popularVersions.bump(POPULAR_FILMS_VERSION);
+	}
+
 	/**
 	 * Обновить фильм
 	 *
@@ -70,6 +119,7 @@ public class FilmService {
 			throw new NotFoundException("Фильм с указанным id не найден");
 		}
 		Film updatedFilm = filmStorage.updateFilm(film);
+		popularVersions.bump(POPULAR_FILMS_VERSION);
 		log.debug("Фильм с id {} успешно обновлен", updatedFilm.getId());
 		return updatedFilm;
 	}
@@ -99,6 +149,33 @@ public class FilmService {
 		return filmStorage.getAllFilms();
 	}
 
+	/**
+	 * Поток всех фильмов для выгрузки без загрузки всего списка в память. Поток нужно закрыть после использования
+	 *
+	 * @return поток всех фильмов в порядке id
+	 */
+	public Stream<Film> streamAllFilms() {
+		log.debug("Выгружаем все фильмы потоком");
+		return filmStorage.streamFilms();
+	}
+
+	/**
+	 * Страница фильмов, упорядоченных по id
+	 *
+	 * @param afterId id последнего фильма предыдущей страницы (null для первой страницы)
+	 * @param limit размер страницы (если null, используется размер по умолчанию)
+	 * @return фильмы с id больше afterId, не более limit штук
+	 */
+	public List<Film> getFilmsPage(Integer afterId, Integer limit) {
+		int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+		if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+			log.error(VALIDATION_ERROR_PREFIX + "размер страницы должен быть от 1 до {}", MAX_PAGE_SIZE);
+			throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+		}
+		log.debug("Получаем страницу фильмов после id {}, размер {}", afterId, pageSize);
+		return filmStorage.getFilmsPage(afterId, pageSize);
+	}
+
 	/**
 	 * Добавить лайк фильму от пользователя
 	 *
@@ -106,13 +183,64 @@ public class FilmService {
 	 * @param userId идентификатор пользователя
 	 */
 	public void addLike(Integer filmId, Integer userId) {
-		log.debug("Добавляем лайк: пользователь {} ставит лайк фильму {}", userId, filmId);
+		if (log.isDebugEnabled()) {
+			log.debug("Добавляем лайк: пользователь {} ставит лайк фильму {}", userId, filmId);
+		}
 		Film film = getFilmById(filmId);
 		if (userStorage.getUserById(userId) == null) {
 			log.warn("Попытка поставить лайк от несуществующего пользователя с id: {}", userId);
 			throw new NotFoundException(USER_NOT_FOUND_MESSAGE + userId + " не найден");
 		}
-		film.getLikes().add(userId.longValue());
+		filmStorage.addLike(film.getId(), userId);
+		popularVersions.bump(POPULAR_FILMS_VERSION);
+	}
+
+	/**
+	 * Импортировать пакет лайков. Существование фильмов и пользователей проверяется
+	 * одним пакетным чтением на каждый id, лайки с несуществующими id попадают в отчет
+	 *
+	 * @param records записи пакета
+	 * @param report отчет импорта
+	 */
+	public void importLikes(List<ImportRecord<Like>> records, ImportReport report) {
+		log.debug("Импортируем пакет лайков: {} записей", records.size());
+		Set<Integer> filmIds = new HashSet<>();
+		Set<Integer> userIds = new HashSet<>();
+		for (ImportRecord<Like> record : records) {
+			filmIds.add(record.value().filmId());
+			userIds.add(record.value().userId());
+		}
+		filmIds.remove(null);
+		userIds.remove(null);
+		Set<Integer> existingFilms = new HashSet<>();
+		for (Film film : filmStorage.getFilmsByIds(filmIds)) {
+			existingFilms.add(film.getId());
+		}
+		Set<Integer> existingUsers = new HashSet<>();
+		for (User user : userStorage.getUsersByIds(userIds)) {
+			existingUsers.add(user.getId());
+		}
+		List<Like> likes = new ArrayList<>(records.size());
+		for (ImportRecord<Like> record : records) {
+			Like like = record.value();
+			if (like.filmId() == null || like.userId() == null) {
+				report.failed(record.number(), ValidationException.ERROR, "Нужно указать filmId и userId");
+			} else if (!existingFilms.contains(like.filmId())) {
+				report.failed(record.number(), NotFoundException.ERROR,
+						FILM_NOT_FOUND_MESSAGE + like.filmId() + " не найден");
+			} else if (!existingUsers.contains(like.userId())) {
+				report.failed(record.number(), NotFoundException.ERROR,
+						USER_NOT_FOUND_MESSAGE + like.userId() + " не найден");
+			} else {
+				likes.add(like);
+			}
+		}
+		if (likes.isEmpty()) {
+			return;
+		}
+		filmStorage.addLikes(likes);
+		report.imported(likes.size());
+		popularVersions.bump(POPULAR_FILMS_VERSION);
 	}
 
 	/**
@@ -122,13 +250,64 @@ public class FilmService {
 	 * @param userId идентификатор пользователя
 	 */
 	public void removeLike(Integer filmId, Integer userId) {
-		log.debug("Удаляем лайк: пользователь {} удаляет лайк фильму {}", userId, filmId);
+		if (log.isDebugEnabled()) {
+			log.debug("Удаляем лайк: пользователь {} удаляет лайк фильму {}", userId, filmId);
+		}
 		Film film = getFilmById(filmId);
 		if (userStorage.getUserById(userId) == null) {
 			log.warn("Попытка удалить лайк от несуществующего пользователя с id: {}", userId);
 			throw new NotFoundException(USER_NOT_FOUND_MESSAGE + userId + " не найден");
 		}
-		film.getLikes().remove(userId.longValue());
+		filmStorage.removeLike(film.getId(), userId);
+		popularVersions.bump(POPULAR_FILMS_VERSION);
+	}
+
+	/**
+	 * Применить пакет постановок и снятий лайков. Каждый фильм и пользователь проверяется один раз,
+	 * повторные операции над одной парой схлопываются до последней. Если хоть один фильм или пользователь
+	 * не найден, пакет не применяется
+	 *
+	 * @param operations операции в порядке их выполнения клиентом
+	 */
+	public void applyLikes(List<LikeOperation> operations) {
+		if (operations == null || operations.size() > MAX_LIKE_BATCH_SIZE) {
+			log.error(VALIDATION_ERROR_PREFIX + "пакет лайков должен содержать не больше {} операций", MAX_LIKE_BATCH_SIZE);
+			throw new ValidationException("Пакет лайков должен содержать не больше " + MAX_LIKE_BATCH_SIZE + " операций");
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Применяем пакет лайков: {} операций", operations.size());
+		}
+		Map<Like, LikeOperation> latest = new LinkedHashMap<>();
+		Set<Integer> filmIds = new HashSet<>();
+		Set<Integer> userIds = new HashSet<>();
+		for (LikeOperation operation : operations) {
+			if (operation == null || operation.filmId() == null || operation.userId() == null || operation.op() == null) {
+				log.error(VALIDATION_ERROR_PREFIX + "в операции пакета лайков не указан filmId, userId или op");
+				throw new ValidationException("Для каждой операции нужно указать filmId, userId и op");
+			}
+			latest.put(new Like(operation.filmId(), operation.userId()), operation);
+			filmIds.add(operation.filmId());
+			userIds.add(operation.userId());
+		}
+		if (latest.isEmpty()) {
+			return;
+		}
+		for (Film film : filmStorage.getFilmsByIds(filmIds)) {
+			filmIds.remove(film.getId());
+		}
+		if (!filmIds.isEmpty()) {
+			log.warn("Пакет лайков ссылается на несуществующие фильмы: {}", filmIds);
+			throw new NotFoundException(FILM_NOT_FOUND_MESSAGE + filmIds.iterator().next() + " не найден");
+		}
+		for (User user : userStorage.getUsersByIds(userIds)) {
+			userIds.remove(user.getId());
+		}
+		if (!userIds.isEmpty()) {
+			log.warn("Пакет лайков ссылается на несуществующих пользователей: {}", userIds);
+			throw new NotFoundException(USER_NOT_FOUND_MESSAGE + userIds.iterator().next() + " не найден");
+		}
+		filmStorage.applyLikes(new ArrayList<>(latest.values()));
+		popularVersions.bump(POPULAR_FILMS_VERSION);
 	}
 
 	/**
@@ -138,13 +317,133 @@ public class FilmService {
 	 * @return список популярных фильмов
 	 */
 	public List<Film> getPopularFilms(Integer count) {
-		int limit = (count == null || count <= MIN_DURATION_VALUE) ? DEFAULT_POPULAR_FILMS_LIMIT : count;
-		log.debug("Получаем список популярных фильмов: {}", limit);
-		List<Film> popularFilms = filmStorage.getAllFilms().stream()
-				.sorted(Comparator.comparingInt((Film f) -> f.getLikes().size()).reversed())
-				.limit(limit)
-				.collect(Collectors.toList());
-		return popularFilms;
+		int limit = popularFilmsLimit(count);
+		if (log.isDebugEnabled()) {
+			log.debug("Получаем список популярных фильмов: {}", limit);
+		}
+		return filmStorage.getPopularFilms(limit);
+	}
+
+	/**
+	 * Список самых популярных фильмов с фильтром по году выпуска и продолжительности.
+	 * Незаданные условия не ограничивают выборку
+	 *
+	 * @param count количество фильмов для возврата (если null или <= 0, возвращается 10)
+	 * @param year год выпуска
+	 * @param minDuration минимальная продолжительность включительно
+	 * @param maxDuration максимальная продолжительность включительно
+	 * @return список популярных фильмов, подходящих под фильтр
+	 */
+	public List<Film> getPopularFilms(Integer count, Integer year, Integer minDuration, Integer maxDuration) {
+		if (minDuration != null && maxDuration != null && minDuration > maxDuration) {
+			log.error(VALIDATION_ERROR_PREFIX + "минимальная продолжительность {} больше максимальной {}",
+					minDuration, maxDuration);
+			throw new ValidationException("Минимальная продолжительность не может быть больше максимальной");
+		}
+		int limit = popularFilmsLimit(count);
+		if (log.isDebugEnabled()) {
+			log.debug("Получаем список популярных фильмов: {}, год {}, продолжительность от {} до {}",
+					limit, year, minDuration, maxDuration);
+		}
+		return filmStorage.getPopularFilms(limit, year, minDuration, maxDuration);
+	}
+
+	/**
+	 * Набирающие популярность фильмы: по количеству лайков, поставленных за окно и не снятых
+	 *
+	 * @param count количество фильмов для возврата (если null или <= 0, возвращается 10)
+	 * @param window длина окна: 1h, 24h или 7d
+	 * @return список фильмов в порядке убывания количества лайков за окно
+	 */
+	public List<Film> getTrendingFilms(Integer count, String window) {
+		TrendingWindow trendingWindow = parseTrendingWindow(window);
+		int limit = popularFilmsLimit(count);
+		if (log.isDebugEnabled()) {
+			log.debug("Получаем список набирающих популярность фильмов за {}: {}", trendingWindow, limit);
+		}
+		return filmStorage.getTrendingFilms(trendingWindow, limit);
+	}
+
+	/**
+	 * Фильмы, которым пользователь поставил лайк
+	 *
+	 * @param userId идентификатор пользователя
+	 * @return фильмы в порядке id
+	 */
+	public List<Film> getLikedFilms(Integer userId) {
+		if (log.isDebugEnabled()) {
+			log.debug("Получаем фильмы с лайком пользователя {}", userId);
+		}
+		checkUserExists(userId);
+		return filmStorage.getLikedFilms(userId);
+	}
+
+	/**
+	 * Снять все лайки пользователя, например перед удалением его данных
+	 *
+	 * @param userId идентификатор пользователя
+	 */
+	public void removeUserLikes(Integer userId) {
+		log.debug("Снимаем все лайки пользователя {}", userId);
+		checkUserExists(userId);
+		filmStorage.removeUserLikes(userId);
+		popularVersions.bump(POPULAR_FILMS_VERSION);
+	}
+
+	/**
+	 * Рекомендации фильмов: фильмы, которые понравились пользователям с похожими лайками,
+	 * но которым пользователь еще не поставил лайк
+	 *
+	 * @param userId идентификатор пользователя
+	 * @param limit максимальное количество фильмов (если null, возвращается 10)
+	 * @return рекомендованные фильмы, начиная с лучшего
+	 */
+	public List<Film> getRecommendedFilms(Integer userId, Integer limit) {
+		int count = limit == null ? DEFAULT_RECOMMENDATIONS_LIMIT : limit;
+		if (count <= 0 || count > MAX_RECOMMENDATIONS_LIMIT) {
+			log.error(VALIDATION_ERROR_PREFIX + "количество рекомендаций должно быть от 1 до {}", MAX_RECOMMENDATIONS_LIMIT);
+			throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_RECOMMENDATIONS_LIMIT);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Подбираем рекомендации фильмов для пользователя {}, количество {}", userId, count);
+		}
+		checkUserExists(userId);
+		return filmStorage.getRecommendedFilms(userId, count);
+	}
+
+	/**
+	 * ETag текущей версии списка популярных фильмов
+	 *
+	 * @param count количество фильмов, как в {@link #getPopularFilms(Integer)}
+	 * @return значение ETag без кавычек
+	 */
+	public String getPopularFilmsEtag(Integer count) {
+		return popularVersions.etag("popular", popularFilmsLimit(count));
+	}
+
+	private void checkUserExists(Integer userId) {
+		if (userStorage.getUserById(userId) == null) {
+			log.warn("Пользователь с id {} не найден", userId);
+			throw new NotFoundException(USER_NOT_FOUND_MESSAGE + userId + " не найден");
+		}
+	}
+
+	private static TrendingWindow parseTrendingWindow(String window) {
+		TrendingWindow trendingWindow;
+		try {
+			trendingWindow = TrendingWindow.of(DurationStyle.detectAndParse(window));
+		} catch (IllegalArgumentException e) {
+			trendingWindow = null;
+		}
+		if (trendingWindow == null) {
+			log.error(VALIDATION_ERROR_PREFIX + "неподдерживаемое окно {}", window);
+			throw new ValidationException("Окно должно быть одним из: " + SUPPORTED_TRENDING_WINDOWS);
+		}
+		return trendingWindow;
+	}
+
+	private static int popularFilmsLimit(Integer count) {
+		return (count == null || count <= MIN_DURATION_VALUE) ? DEFAULT_POPULAR_FILMS_LIMIT : count;
 	}
 
 	/**
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.service;
+
+/**
+ * Запись массового импорта
+ *
+ * @param number номер записи во входных данных, начиная с 1
+ * @param value прочитанная запись
+ */
+public record ImportRecord<T>(long number, T value) {
+}
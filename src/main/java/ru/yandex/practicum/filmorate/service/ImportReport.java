@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Отчет массового импорта: количество сохраненных и отклоненных записей, id созданных объектов
+ * в порядке записей и ошибки отклоненных записей. Хранится не больше MAX_ERRORS ошибок,
+ * чтобы импорт полностью ошибочного файла не занимал память по числу записей
+ */
+public class ImportReport {
+	private static final int MAX_ERRORS = 1000;
+	private static final int INITIAL_IDS_CAPACITY = 16;
+
+	private long imported;
+	private long failed;
+	private int[] ids = new int[INITIAL_IDS_CAPACITY];
+	private int idsCount;
+	private final List<ImportError> errors = new ArrayList<>();
+
+	/**
+	 * Отметить созданный объект
+	 *
+	 * @param id идентификатор созданного объекта
+	 */
+	public void created(int id) {
+		if (idsCount == ids.length) {
+			ids = Arrays.copyOf(ids, ids.length * 2);
+		}
+		ids[idsCount++] = id;
+		imported++;
+	}
+
+	/**
+	 * Отметить сохраненные записи, для которых не создаются объекты с id
+	 *
+	 * @param count количество записей
+	 */
+	public void imported(int count) {
+		imported += count;
+	}
+
+	/**
+	 * Отметить отклоненную запись
+	 *
+	 * @param record номер записи
+	 * @param error тип ошибки, как в ответах об ошибках, например {@link ru.yandex.practicum.filmorate.exception.ValidationException#ERROR}
+	 * @param message описание ошибки
+	 */
+	public void failed(long record, String error, String message) {
+		failed++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add(new ImportError(record, error, message));
+		}
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	public int[] getIds() {
+		return Arrays.copyOf(ids, idsCount);
+	}
+
+	/**
+	 * Ошибки в порядке номеров записей: ошибки чтения отмечаются сразу, а ошибки проверки — при импорте пакета
+	 */
+	public List<ImportError> getErrors() {
+		errors.sort(Comparator.comparingLong(ImportError::record));
+		return errors;
+	}
+
+	/**
+	 * Ошибка записи импорта
+	 *
+	 * @param record номер записи во входных данных
+	 * @param error тип ошибки
+	 * @param message описание ошибки
+	 */
+	public record ImportError(long record, String error, String message) {
+	}
+}
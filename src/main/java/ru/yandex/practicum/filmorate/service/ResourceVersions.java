@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счетчики версий ресурсов для условных запросов (ETag / If-None-Match).
+ * <p>
+ * Версии хранятся в фиксированном массиве счетчиков, распределенных по id ресурса, поэтому память не растет
+ * с числом пользователей. Изменение ресурса увеличивает счетчик его полосы: соседние ресурсы той же полосы
+ * тоже получают новую версию, что дает лишний полный ответ, но никогда не дает устаревший 304.
+ * В ETag входит метка запуска приложения, чтобы после перезапуска счетчики с нуля не совпали со старыми тегами.
+ * Версию нужно увеличивать после изменения данных, иначе ответ, собранный до изменения, получит новый тег
+ */
+public class ResourceVersions {
+	private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	private final AtomicLongArray counters;
+
+
+	/**
+	 * @param stripes количество счетчиков, округляется вверх до степени двойки
+	 */
+	public ResourceVersions(int stripes) {
+		counters = new AtomicLongArray(Integer.highestOneBit(Math.max(1, stripes - 1)) << 1);
+	}
+
+	/**
+	 * Отметить изменение ресурса
+	 *
+	 * @param id идентификатор ресурса
+	 */
+	public void bump(int id) {
+		counters.incrementAndGet(stripe(id));
+	}
+
+	/**
+	 * Значение ETag для текущей версии ресурса
+	 *
+	 * @param resource имя ресурса
+	 * @param id идентификатор ресурса
+	 * @return значение ETag без кавычек
+	 */
+	public String etag(String resource, int id) {
+		return resource + "-" + EPOCH + "-" + id + "-" + counters.get(stripe(id));
+	}
+
+	private int stripe(int id) {
+		int hash = id * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (counters.length() - 1);
+	}
+}
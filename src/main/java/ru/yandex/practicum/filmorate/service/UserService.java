@@ -1,30 +1,43 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для работы с пользователями
  */
 @Slf4j
 @Service
+@Timed("filmorate.service")
 public class UserService {
 	private static final String VALIDATION_ERROR_PREFIX = "Ошибка валидации: ";
 	private static final String USER_NOT_FOUND = "Пользователь с id {} не найден";
 	private static final String USER_NOT_FOUND_MESSAGE = "Пользователь с id ";
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int DEFAULT_RECOMMENDATIONS_LIMIT = 10;
+	private static final int MAX_RECOMMENDATIONS_LIMIT = 100;
+	private static final int FRIENDS_VERSION_STRIPES = 1024;
 
 	private final UserStorage userStorage;
+	/** Версии списков друзей: список меняется при изменении дружбы и при обновлении любого из друзей */
+	private final ResourceVersions friendsVersions = new ResourceVersions(FRIENDS_VERSION_STRIPES);
 
 
 	@Autowired
@@ -50,6 +63,34 @@ public class UserService {
 		return createdUser;
 	}
 
+	/**
+	 * Импортировать пакет пользователей. Пользователи проверяются по тем же правилам, что и при создании,
+	 * ошибочные записи попадают в отчет, остальные сохраняются в хранилище одним пакетом
+	 *
+	 * @param records записи пакета
+	 * @param report отчет импорта
+	 */
+	public void importUsers(List<ImportRecord<User>> records, ImportReport report) {
+		log.debug("Импортируем пакет пользователей: {} записей", records.size());
+		List<User> users = new ArrayList<>(records.size());
+		for (ImportRecord<User> record : records) {
+			User user = record.value();
+			try {
+				validateUser(user);
+			} catch (ValidationException e) {
+				report.failed(record.number(), ValidationException.ERROR, e.getMessage());
+				continue;
+			}
+			if (user.getName() == null || user.getName().isBlank()) {
+				user.setName(user.getLogin());
+			}
+			users.add(user);
+		}
+		for (User user : userStorage.addUsers(users)) {
+			report.created(user.getId());
+		}
+	}
+
 	/**
 	 * Обновить существующего пользователя
 	 *
@@ -59,15 +100,19 @@ public class UserService {
 	public User updateUser(User user) {
 		log.debug("Начинаем обновление пользователя с id: {}", user.getId());
 		validateUser(user);
-		if (user.getId() == null || userStorage.getUserById(user.getId()) == null) {
+		User previous = user.getId() == null ? null : userStorage.getUserById(user.getId());
+		if (previous == null) {
 			log.warn("Попытка обновить несуществующего пользователя с id: {}", user.getId());
 			throw new NotFoundException("Пользователь с указанным id не найден");
 		}
+		int[] previousFriends = previous.getFriends().toSortedArray();
 		if (user.getName() == null || user.getName().isBlank()) {
 			log.trace("Имя пользователя пустое, используем логин: {}", user.getLogin());
 			user.setName(user.getLogin());
 		}
 		User updatedUser = userStorage.updateUser(user);
+		friendsVersions.bump(user.getId());
+		bumpFriendsVersions(previousFriends);
 		log.debug("Пользователь с id {} успешно обновлен", updatedUser.getId());
 		return updatedUser;
 	}
@@ -97,6 +142,33 @@ public class UserService {
 		return userStorage.getAllUsers();
 	}
 
+	/**
+	 * Поток всех пользователей для выгрузки без загрузки всего списка в память. Поток нужно закрыть после использования
+	 *
+	 * @return поток всех пользователей в порядке id
+	 */
+	public Stream<User> streamAllUsers() {
+		log.debug("Выгружаем всех пользователей потоком");
+		return userStorage.streamUsers();
+	}
+
+	/**
+	 * Страница пользователей, упорядоченных по id
+	 *
+	 * @param afterId id последнего пользователя предыдущей страницы (null для первой страницы)
+	 * @param limit размер страницы (если null, используется размер по умолчанию)
+	 * @return пользователи с id больше afterId, не более limit штук
+	 */
+	public List<User> getUsersPage(Integer afterId, Integer limit) {
+		int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+		if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+			log.error(VALIDATION_ERROR_PREFIX + "размер страницы должен быть от 1 до {}", MAX_PAGE_SIZE);
+			throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+		}
+		log.debug("Получаем страницу пользователей после id {}, размер {}", afterId, pageSize);
+		return userStorage.getUsersPage(afterId, pageSize);
+	}
+
 	/**
 	 * Добавить пользователя в друзья другому пользователю
 	 *
@@ -104,11 +176,60 @@ public class UserService {
 	 * @param friendId идентификатор друга
 	 */
 	public void addFriend(Integer userId, Integer friendId) {
-		log.debug("Начинаем добавление в друзья: пользователь {} добавляет пользователя {}", userId, friendId);
-		User user = getUserById(userId);
-		User friend = getUserById(friendId);
-		user.getFriends().add(friendId.longValue());
-		friend.getFriends().add(userId.longValue());
+		if (log.isDebugEnabled()) {
+			log.debug("Начинаем добавление в друзья: пользователь {} добавляет пользователя {}", userId, friendId);
+		}
+		getUserById(userId);
+		getUserById(friendId);
+		userStorage.addFriend(userId, friendId);
+		bumpFriendshipVersions(List.of(userId, friendId));
+	}
+
+	/**
+	 * Импортировать пакет дружб. Существование пользователей проверяется одним пакетным чтением
+	 * на каждый id, дружбы с несуществующими пользователями попадают в отчет
+	 *
+	 * @param records записи пакета
+	 * @param report отчет импорта
+	 */
+	public void importFriendships(List<ImportRecord<Friendship>> records, ImportReport report) {
+		log.debug("Импортируем пакет дружб: {} записей", records.size());
+		Set<Integer> userIds = new HashSet<>();
+		for (ImportRecord<Friendship> record : records) {
+			userIds.add(record.value().userId());
+			userIds.add(record.value().friendId());
+		}
+		userIds.remove(null);
+		Set<Integer> existingUsers = new HashSet<>();
+		for (User user : userStorage.getUsersByIds(userIds)) {
+			existingUsers.add(user.getId());
+		}
+		List<Friendship> friendships = new ArrayList<>(records.size());
+		for (ImportRecord<Friendship> record : records) {
+			Friendship friendship = record.value();
+			if (friendship.userId() == null || friendship.friendId() == null) {
+				report.failed(record.number(), ValidationException.ERROR, "Нужно указать userId и friendId");
+			} else if (!existingUsers.contains(friendship.userId())) {
+				report.failed(record.number(), NotFoundException.ERROR,
+						USER_NOT_FOUND_MESSAGE + friendship.userId() + " не найден");
+			} else if (!existingUsers.contains(friendship.friendId())) {
+				report.failed(record.number(), NotFoundException.ERROR,
+						USER_NOT_FOUND_MESSAGE + friendship.friendId() + " не найден");
+			} else {
+				friendships.add(friendship);
+			}
+		}
+		if (friendships.isEmpty()) {
+			return;
+		}
+		userStorage.addFriends(friendships);
+		report.imported(friendships.size());
+		Set<Integer> changedUsers = new HashSet<>();
+		for (Friendship friendship : friendships) {
+			changedUsers.add(friendship.userId());
+			changedUsers.add(friendship.friendId());
+		}
+		bumpFriendshipVersions(changedUsers);
 	}
 
 	/**
@@ -118,11 +239,13 @@ public class UserService {
 	 * @param friendId идентификатор друга
 	 */
 	public void removeFriend(Integer userId, Integer friendId) {
-		log.debug("Начинаем удаление из друзей: пользователь {} удаляет пользователя {}", userId, friendId);
-		User user = getUserById(userId);
-		User friend = getUserById(friendId);
-		user.getFriends().remove(friendId.longValue());
-		friend.getFriends().remove(userId.longValue());
+		if (log.isDebugEnabled()) {
+			log.debug("Начинаем удаление из друзей: пользователь {} удаляет пользователя {}", userId, friendId);
+		}
+		getUserById(userId);
+		getUserById(friendId);
+		userStorage.removeFriend(userId, friendId);
+		bumpFriendshipVersions(List.of(userId, friendId));
 	}
 
 	/**
@@ -132,13 +255,23 @@ public class UserService {
 	 * @return список друзей пользователя
 	 */
 	public List<User> getFriends(Integer userId) {
-		log.debug("Получаем список друзей пользователя с id: {}", userId);
-		User user = getUserById(userId);
-		List<User> friends = new ArrayList<>();
-		for (Long friendId : user.getFriends()) {
-			friends.add(getUserById(friendId.intValue()));
+		if (log.isDebugEnabled()) {
+			log.debug("Получаем список друзей пользователя с id: {}", userId);
 		}
-		return friends;
+		User user = getUserById(userId);
+		return userStorage.getUsersByIds(toIdList(user.getFriends().toSortedArray()));
+	}
+
+	/**
+	 * ETag текущей версии списка друзей пользователя. Версии есть и у несуществующих id,
+	 * поэтому сначала проверяется, что пользователь существует: иначе повтор ETag получил бы 304 вместо 404
+	 *
+	 * @param userId идентификатор пользователя
+	 * @return значение ETag без кавычек
+	 */
+	public String getFriendsEtag(Integer userId) {
+		getUserById(userId);
+		return friendsVersions.etag("friends", userId);
 	}
 
 	/**
@@ -149,22 +282,55 @@ public class UserService {
 	 * @return список общих друзей
 	 */
 	public List<User> getCommonFriends(Integer userId, Integer otherId) {
-		log.debug("Начинаем поиск общих друзей пользователей {} и {}", userId, otherId);
-		User user = getUserById(userId);
-		User other = getUserById(otherId);
+		if (log.isDebugEnabled()) {
+			log.debug("Начинаем поиск общих друзей пользователей {} и {}", userId, otherId);
+		}
+		getUserById(userId);
+		getUserById(otherId);
+		return userStorage.getCommonFriends(userId, otherId);
+	}
 
-		Set<Long> userFriends = user.getFriends();
-		Set<Long> otherFriends = other.getFriends();
+	/**
+	 * Рекомендации друзей: друзья друзей пользователя, упорядоченные по количеству общих друзей
+	 *
+	 * @param userId идентификатор пользователя
+	 * @param limit максимальное количество рекомендаций (если null, возвращается 10)
+	 * @return рекомендованные пользователи, начиная с лучшего
+	 */
+	public List<User> getFriendRecommendations(Integer userId, Integer limit) {
+		int count = limit == null ? DEFAULT_RECOMMENDATIONS_LIMIT : limit;
+		if (count <= 0 || count > MAX_RECOMMENDATIONS_LIMIT) {
+			log.error(VALIDATION_ERROR_PREFIX + "количество рекомендаций должно быть от 1 до {}", MAX_RECOMMENDATIONS_LIMIT);
+			throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_RECOMMENDATIONS_LIMIT);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Подбираем рекомендации друзей для пользователя {}, количество {}", userId, count);
+		}
+		getUserById(userId);
+		return userStorage.getFriendRecommendations(userId, count);
+	}
 
-		Set<Long> commonFriendIds = userFriends.stream()
-				.filter(otherFriends::contains)
-				.collect(Collectors.toSet());
+	/**
+	 * Отметить изменение списков друзей после изменения дружбы пользователей. Меняются их собственные списки
+	 * и списки их нынешних друзей: в ответ входит множество друзей каждого друга
+	 *
+	 * @param userIds пользователи, у которых изменились друзья
+	 */
+	private void bumpFriendshipVersions(Collection<Integer> userIds) {
+		for (User user : userStorage.getUsersByIds(userIds)) {
+			friendsVersions.bump(user.getId());
+			bumpFriendsVersions(user.getFriends().toSortedArray());
+		}
+	}
 
-		List<User> commonFriends = new ArrayList<>();
-		for (Long friendId : commonFriendIds) {
-			commonFriends.add(getUserById(friendId.intValue()));
+	private void bumpFriendsVersions(int[] ids) {
+		for (int id : ids) {
+			friendsVersions.bump(id);
 		}
-		return commonFriends;
+	}
+
+	private static List<Integer> toIdList(int[] ids) {
+		return Arrays.stream(ids).boxed().toList();
 	}
 
 	/**
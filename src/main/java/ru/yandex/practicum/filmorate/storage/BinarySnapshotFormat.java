@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Компактный двоичный снимок, который читается через отображение файла в память.
+ * <p>
+ * Структура файла:
+ * <ul>
+ *     <li>заголовок фиксированной длины: сигнатура, версия, тип записей, номер записи журнала,
+ *     количество записей и строк, смещения секций;</li>
+ *     <li>секция строк: каждая уникальная строка записана один раз (длина и байты UTF-8),
+ *     записи ссылаются на строки по номеру;</li>
+ *     <li>секция записей фиксированной длины: целочисленные поля, номера строк,
+ *     смещение и длина списка смежности;</li>
+ *     <li>секция смежности: отсортированные id лайков или друзей всех записей подряд.</li>
+ * </ul>
+ * Числа записываются в порядке big-endian, отсутствующие значения — специальными константами
+ *
+ * @param <R> тип записи снимка
+ */
+class BinarySnapshotFormat<R> implements SnapshotFormat<R> {
+	static final int MAGIC = 0x464D5254;
+
+	private static final int VERSION = 1;
+	private static final int FILM_KIND = 1;
+	private static final int USER_KIND = 2;
+	private static final int HEADER_SIZE = 60;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+	private static final int NULL_STRING = -1;
+	private static final long MAX_WINDOW = 1L << 30;
+
+	private final int kind;
+	private final int intFields;
+	private final int stringFields;
+	private final Function<R, int[]> ints;
+	private final Function<R, String[]> strings;
+	private final Function<R, IdSet> adjacency;
+	private final RecordFactory<R> factory;
+
+
+	private BinarySnapshotFormat(int kind, int intFields, int stringFields, Function<R, int[]> ints,
+								 Function<R, String[]> strings, Function<R, IdSet> adjacency,
+								 RecordFactory<R> factory) {
+		this.kind = kind;
+		this.intFields = intFields;
+		this.stringFields = stringFields;
+		this.ints = ints;
+		this.strings = strings;
+		this.adjacency = adjacency;
+		this.factory = factory;
+	}
+
+	/**
+	 * Формат снимка фильмов: поля id, дата релиза, продолжительность; строки название и описание; лайки
+	 */
+	static BinarySnapshotFormat<Film> films() {
+		return new BinarySnapshotFormat<>(FILM_KIND, 3, 2,
+				film -> new int[]{film.getId(), epochDay(film.getReleaseDate()), orNull(film.getDuration())},
+				film -> new String[]{film.getName(), film.getDescription()},
+				Film::getLikes,
+				(fields, texts, likes) -> {
+					Film film = new Film();
+					film.setId(fields[0]);
+					film.setReleaseDate(date(fields[1]));
+					film.setDuration(fields[2] == NULL_INT ? null : fields[2]);
+					film.setName(texts[0]);
+					film.setDescription(texts[1]);
+					film.setLikes(likes);
+					return film;
+				});
+	}
+
+	/**
+	 * Формат снимка пользователей: поля id и дата рождения; строки email, логин, имя; друзья
+	 */
+	static BinarySnapshotFormat<User> users() {
+		return new BinarySnapshotFormat<>(USER_KIND, 2, 3,
+				user -> new int[]{user.getId(), epochDay(user.getBirthday())},
+				user -> new String[]{user.getEmail(), user.getLogin(), user.getName()},
+				User::getFriends,
+				(fields, texts, friends) -> {
+					User user = new User();
+					user.setId(fields[0]);
+					user.setBirthday(date(fields[1]));
+					user.setEmail(texts[0]);
+					user.setLogin(texts[1]);
+					user.setName(texts[2]);
+					user.setFriends(friends);
+					return user;
+				});
+	}
+
+	@Override
+	public boolean accepts(byte[] header) {
+		return header.length >= Integer.BYTES && ByteBuffer.wrap(header).getInt() == MAGIC;
+	}
+
+	/**
+	 * Конвертировать текущее состояние хранилища в двоичный снимок. Поля и списки смежности каждой записи
+	 * фиксируются за один проход, поэтому длины списков в записях всегда совпадают с секцией смежности
+	 */
+	@Override
+	public void write(Path path, long seq, Stream<R> records) throws IOException {
+		List<byte[]> stringTable = new ArrayList<>();
+		Map<String, Integer> stringIds = new HashMap<>();
+		List<int[]> fixedFields = new ArrayList<>();
+		List<int[]> adjacencyLists = new ArrayList<>();
+		long stringBytes = 0;
+		long adjacencyCount = 0;
+		for (R record : (Iterable<R>) records::iterator) {
+			int[] fields = new int[intFields + stringFields];
+			System.arraycopy(ints.apply(record), 0, fields, 0, intFields);
+			String[] texts = strings.apply(record);
+			for (int i = 0; i < stringFields; i++) {
+				String text = texts[i];
+				if (text == null) {
+					fields[intFields + i] = NULL_STRING;
+					continue;
+				}
+				Integer id = stringIds.get(text);
+				if (id == null) {
+					id = stringTable.size();
+					stringIds.put(text, id);
+					byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+					stringTable.add(bytes);
+					stringBytes += Integer.BYTES + bytes.length;
+				}
+				fields[intFields + i] = id;
+			}
+			int[] ids = adjacency.apply(record).toSortedArray();
+			fixedFields.add(fields);
+			adjacencyLists.add(ids);
+			adjacencyCount += ids.length;
+		}
+
+		long stringsOffset = HEADER_SIZE;
+		long recordsOffset = stringsOffset + stringBytes;
+		long adjacencyOffset = recordsOffset + (long) fixedFields.size() * recordSize();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(kind);
+			out.writeLong(seq);
+			out.writeInt(fixedFields.size());
+			out.writeInt(stringTable.size());
+			out.writeLong(stringsOffset);
+			out.writeLong(recordsOffset);
+			out.writeLong(adjacencyOffset);
+			out.writeLong(adjacencyCount);
+			for (byte[] bytes : stringTable) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			long adjacencyIndex = 0;
+			for (int i = 0; i < fixedFields.size(); i++) {
+				for (int field : fixedFields.get(i)) {
+					out.writeInt(field);
+				}
+				out.writeLong(adjacencyIndex);
+				out.writeInt(adjacencyLists.get(i).length);
+				adjacencyIndex += adjacencyLists.get(i).length;
+			}
+			for (int[] ids : adjacencyLists) {
+				for (int id : ids) {
+					out.writeInt(id);
+				}
+			}
+		}
+	}
+
+	@Override
+	public long read(Path path, Consumer<R> restore) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedReader header = new MappedReader(channel, 0, HEADER_SIZE);
+			if (header.readInt() != MAGIC || header.readInt() != VERSION || header.readInt() != kind) {
+				throw new IOException("Неподдерживаемый формат снимка " + path);
+			}
+			long seq = header.readLong();
+			int recordCount = header.readInt();
+			int stringCount = header.readInt();
+			long stringsOffset = header.readLong();
+			long recordsOffset = header.readLong();
+			long adjacencyOffset = header.readLong();
+			long adjacencyCount = header.readLong();
+
+			String[] stringTable = new String[stringCount];
+			MappedReader stringReader = new MappedReader(channel, stringsOffset, recordsOffset);
+			for (int i = 0; i < stringCount; i++) {
+				byte[] bytes = new byte[stringReader.readInt()];
+				stringReader.readBytes(bytes);
+				stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			MappedReader recordReader = new MappedReader(channel, recordsOffset, adjacencyOffset);
+			MappedReader adjacencyReader = new MappedReader(channel, adjacencyOffset,
+					adjacencyOffset + adjacencyCount * Integer.BYTES);
+			for (int i = 0; i < recordCount; i++) {
+				int[] fields = new int[intFields];
+				for (int f = 0; f < intFields; f++) {
+					fields[f] = recordReader.readInt();
+				}
+				String[] texts = new String[stringFields];
+				for (int s = 0; s < stringFields; s++) {
+					int ref = recordReader.readInt();
+					texts[s] = ref == NULL_STRING ? null : stringTable[ref];
+				}
+				long adjacencyIndex = recordReader.readLong();
+				int adjacencySize = recordReader.readInt();
+				adjacencyReader.seek(adjacencyOffset + adjacencyIndex * Integer.BYTES);
+				IdSet ids = new IdSet();
+				for (int a = 0; a < adjacencySize; a++) {
+					ids.add(adjacencyReader.readInt());
+				}
+				restore.accept(factory.create(fields, texts, ids));
+			}
+			return seq;
+		}
+	}
+
+	private int recordSize() {
+		return (intFields + stringFields) * Integer.BYTES + Long.BYTES + Integer.BYTES;
+	}
+
+	private static int epochDay(LocalDate date) {
+		return date == null ? NULL_INT : Math.toIntExact(date.toEpochDay());
+	}
+
+	private static LocalDate date(int epochDay) {
+		return epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay);
+	}
+
+	private static int orNull(Integer value) {
+		return value == null ? NULL_INT : value;
+	}
+
+	@FunctionalInterface
+	private interface RecordFactory<R> {
+		R create(int[] fields, String[] texts, IdSet adjacency);
+	}
+
+	/**
+	 * Последовательное чтение участка файла через отображение в память окнами до 1 ГБ,
+	 * так как один MappedByteBuffer не может быть больше 2 ГБ
+	 */
+	private static final class MappedReader {
+		private final FileChannel channel;
+		private final long end;
+		private long position;
+		private long windowStart;
+		private MappedByteBuffer window;
+
+		MappedReader(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+		void seek(long newPosition) {
+			position = newPosition;
+		}
+
+		int readInt() throws IOException {
+			int value = ensure(Integer.BYTES).getInt((int) (position - windowStart));
+			position += Integer.BYTES;
+			return value;
+		}
+
+		long readLong() throws IOException {
+			long value = ensure(Long.BYTES).getLong((int) (position - windowStart));
+			position += Long.BYTES;
+			return value;
+		}
+
+		void readBytes(byte[] bytes) throws IOException {
+			ensure(bytes.length).get((int) (position - windowStart), bytes);
+			position += bytes.length;
+		}
+
+		private MappedByteBuffer ensure(int length) throws IOException {
+			if (position + length > end) {
+				throw new IOException("Снимок поврежден: чтение за границей секции");
+			}
+			if (window == null || position < windowStart || position + length > windowStart + window.limit()) {
+				windowStart = position;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(MAX_WINDOW, end - position));
+			}
+			return window;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Статистика кэша хранилища
+ *
+ * @param hits количество чтений, найденных в кэше
+ * @param misses количество чтений, переданных в хранилище
+ * @param evictions количество записей, вытесненных по размеру или сроку жизни
+ * @param size текущее количество записей
+ * @param hitRate доля чтений, найденных в кэше, от 0 до 1
+ */
+public record CacheStats(long hits, long misses, long evictions, long size, double hitRate) {
+
+	static CacheStats of(long hits, long misses, long evictions, long size) {
+		long requests = hits + misses;
+		return new CacheStats(hits, misses, evictions, size, requests == 0 ? 0 : (double) hits / requests);
+	}
+}
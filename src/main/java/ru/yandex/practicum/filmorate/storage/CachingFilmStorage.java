@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Кэш фильмов по id перед хранилищем. Чтение по id проходит через кэш,
+ * изменения фильма и его лайков передаются в хранилище и сбрасывают запись кэша
+ */
+public class CachingFilmStorage implements FilmStorage {
+	private final FilmStorage delegate;
+	private final StorageCache<Film> cache;
+
+
+	public CachingFilmStorage(FilmStorage delegate, int maxSize, Duration ttl) {
+		this.delegate = delegate;
+		this.cache = new StorageCache<>(maxSize, ttl);
+	}
+
+
+	/**
+	 * Статистика попаданий в кэш фильмов
+	 *
+	 * @return статистика кэша
+	 */
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+
+	@Override
+	public Film addFilm(Film film) {
+		return delegate.addFilm(film);
+	}
+
+
+	@Override
+	public List<Film> addFilms(List<Film> films) {
+		return delegate.addFilms(films);
+	}
+
+
+	@Override
+	public Film updateFilm(Film film) {
+		try {
+			return delegate.updateFilm(film);
+		} finally {
+			cache.invalidate(film.getId());
+		}
+	}
+
+
+	@Override
+	public void deleteFilm(Integer id) {
+		try {
+			delegate.deleteFilm(id);
+		} finally {
+			cache.invalidate(id);
+		}
+	}
+
+
+	@Override
+	public Film getFilmById(Integer id) {
+		return cache.get(id, delegate::getFilmById);
+	}
+
+
+	@Override
+	public List<Film> getAllFilms() {
+		return delegate.getAllFilms();
+	}
+
+
+	@Override
+	public Stream<Film> streamFilms() {
+		return delegate.streamFilms();
+	}
+
+
+	@Override
+	public List<Film> getFilmsPage(Integer afterId, int limit) {
+		return delegate.getFilmsPage(afterId, limit);
+	}
+
+
+	@Override
+	public List<Film> getFilmsByIds(Collection<Integer> ids) {
+		return cache.getAll(ids, delegate::getFilmsByIds, Film::getId);
+	}
+
+
+	@Override
+	public void addLike(Integer filmId, Integer userId) {
+		try {
+			delegate.addLike(filmId, userId);
+		} finally {
+			cache.invalidate(filmId);
+		}
+	}
+
+
+	@Override
+	public void addLikes(List<Like> likes) {
+		try {
+			delegate.addLikes(likes);
+		} finally {
+			for (Like like : likes) {
+				cache.invalidate(like.filmId());
+			}
+		}
+	}
+
+
+	@Override
+	public void removeLike(Integer filmId, Integer userId) {
+		try {
+			delegate.removeLike(filmId, userId);
+		} finally {
+			cache.invalidate(filmId);
+		}
+	}
+
+
+	@Override
+	public void applyLikes(List<LikeOperation> operations) {
+		try {
+			delegate.applyLikes(operations);
+		} finally {
+			for (LikeOperation operation : operations) {
+				cache.invalidate(operation.filmId());
+			}
+		}
+	}
+
+
+	@Override
+	public List<Film> getLikedFilms(Integer userId) {
+		return delegate.getLikedFilms(userId);
+	}
+
+
+	@Override
+	public void removeUserLikes(Integer userId) {
+		List<Film> likedFilms = delegate.getLikedFilms(userId);
+		try {
+			delegate.removeUserLikes(userId);
+		} finally {
+			for (Film film : likedFilms) {
+				cache.invalidate(film.getId());
+			}
+		}
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count) {
+		return delegate.getPopularFilms(count);
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count, Integer year, Integer minDuration, Integer maxDuration) {
+		return delegate.getPopularFilms(count, year, minDuration, maxDuration);
+	}
+
+
+	@Override
+	public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+		return delegate.getTrendingFilms(window, count);
+	}
+
+
+	@Override
+	public List<Film> getRecommendedFilms(Integer userId, int limit) {
+		return delegate.getRecommendedFilms(userId, limit);
+	}
+
+
+	@Override
+	public long getFilmsCount() {
+		return delegate.getFilmsCount();
+	}
+
+
+	@Override
+	public long getLikesCount() {
+		return delegate.getLikesCount();
+	}
+}
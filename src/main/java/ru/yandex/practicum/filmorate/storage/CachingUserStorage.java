@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Кэш пользователей по id перед хранилищем. Дружба симметрична, поэтому изменение дружбы
+ * сбрасывает записи обоих пользователей. Обновление пользователя дружбы не меняет и сбрасывает только его запись
+ */
+public class CachingUserStorage implements UserStorage {
+	private final UserStorage delegate;
+	private final StorageCache<User> cache;
+
+
+	public CachingUserStorage(UserStorage delegate, int maxSize, Duration ttl) {
+		this.delegate = delegate;
+		this.cache = new StorageCache<>(maxSize, ttl);
+	}
+
+
+	/**
+	 * Статистика попаданий в кэш пользователей
+	 *
+	 * @return статистика кэша
+	 */
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+
+	@Override
+	public User addUser(User user) {
+		return delegate.addUser(user);
+	}
+
+
+	@Override
+	public List<User> addUsers(List<User> users) {
+		return delegate.addUsers(users);
+	}
+
+
+	@Override
+	public User updateUser(User user) {
+		try {
+			return delegate.updateUser(user);
+		} finally {
+			cache.invalidate(user.getId());
+		}
+	}
+
+
+	@Override
+	public void deleteUser(Integer id) {
+		User previous = delegate.getUserById(id);
+		try {
+			delegate.deleteUser(id);
+		} finally {
+			cache.invalidate(id);
+			if (previous != null) {
+				invalidateAll(previous.getFriends().toSortedArray());
+			}
+		}
+	}
+
+
+	@Override
+	public User getUserById(Integer id) {
+		return cache.get(id, delegate::getUserById);
+	}
+
+
+	@Override
+	public List<User> getAllUsers() {
+		return delegate.getAllUsers();
+	}
+
+
+	@Override
+	public Stream<User> streamUsers() {
+		return delegate.streamUsers();
+	}
+
+
+	@Override
+	public List<User> getUsersPage(Integer afterId, int limit) {
+		return delegate.getUsersPage(afterId, limit);
+	}
+
+
+	@Override
+	public List<User> getUsersByIds(Collection<Integer> ids) {
+		return cache.getAll(ids, delegate::getUsersByIds, User::getId);
+	}
+
+
+	@Override
+	public void addFriend(Integer userId, Integer friendId) {
+		try {
+			delegate.addFriend(userId, friendId);
+		} finally {
+			cache.invalidate(userId);
+			cache.invalidate(friendId);
+		}
+	}
+
+
+	@Override
+	public void addFriends(List<Friendship> friendships) {
+		try {
+			delegate.addFriends(friendships);
+		} finally {
+			for (Friendship friendship : friendships) {
+				cache.invalidate(friendship.userId());
+				cache.invalidate(friendship.friendId());
+			}
+		}
+	}
+
+
+	@Override
+	public void removeFriend(Integer userId, Integer friendId) {
+		try {
+			delegate.removeFriend(userId, friendId);
+		} finally {
+			cache.invalidate(userId);
+			cache.invalidate(friendId);
+		}
+	}
+
+
+	@Override
+	public List<User> getCommonFriends(Integer userId, Integer otherId) {
+		return delegate.getCommonFriends(userId, otherId);
+	}
+
+
+	@Override
+	public List<User> getFriendRecommendations(Integer userId, int limit) {
+		return delegate.getFriendRecommendations(userId, limit);
+	}
+
+
+	@Override
+	public long getUsersCount() {
+		return delegate.getUsersCount();
+	}
+
+
+	@Override
+	public long getFriendshipsCount() {
+		return delegate.getFriendshipsCount();
+	}
+
+
+	private void invalidateAll(int[] ids) {
+		for (int id : ids) {
+			cache.invalidate(id);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Запись журнала изменений фильмов. Все операции идемпотентны и могут повторяться при восстановлении
+ *
+ * @param operation операция
+ * @param film сохраненный фильм (для SAVE)
+ * @param filmId идентификатор фильма
+ * @param userId идентификатор пользователя (для лайков)
+ * @param time время лайка в миллисекундах (для ADD_LIKE; в старых записях отсутствует)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record FilmJournalEntry(Operation operation, Film film, Integer filmId, Integer userId, Long time) {
+
+	enum Operation {
+		SAVE, DELETE, ADD_LIKE, REMOVE_LIKE
+	}
+
+	static FilmJournalEntry save(Film film) {
+		return new FilmJournalEntry(Operation.SAVE, film, film.getId(), null, null);
+	}
+
+	static FilmJournalEntry delete(Integer filmId) {
+		return new FilmJournalEntry(Operation.DELETE, null, filmId, null, null);
+	}
+
+	static FilmJournalEntry addLike(Integer filmId, Integer userId, long time) {
+		return new FilmJournalEntry(Operation.ADD_LIKE, null, filmId, userId, time);
+	}
+
+	static FilmJournalEntry removeLike(Integer filmId, Integer userId) {
+		return new FilmJournalEntry(Operation.REMOVE_LIKE, null, filmId, userId, null);
+	}
+}
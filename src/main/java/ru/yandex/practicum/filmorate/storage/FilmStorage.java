@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 public interface FilmStorage {
@@ -10,6 +15,9 @@ public interface FilmStorage {
 	Film addFilm(Film film);
 
 
+	List<Film> addFilms(List<Film> films);
+
+
 	Film updateFilm(Film film);
 
 
@@ -20,4 +28,49 @@ public interface FilmStorage {
 
 
 	List<Film> getAllFilms();
+
+
+	Stream<Film> streamFilms();
+
+
+	List<Film> getFilmsPage(Integer afterId, int limit);
+
+
+	List<Film> getFilmsByIds(Collection<Integer> ids);
+
+
+	void addLike(Integer filmId, Integer userId);
+
+
+	void addLikes(List<Like> likes);
+
+
+	void removeLike(Integer filmId, Integer userId);
+
+
+	void applyLikes(List<LikeOperation> operations);
+
+
+	List<Film> getLikedFilms(Integer userId);
+
+
+	void removeUserLikes(Integer userId);
+
+
+	List<Film> getPopularFilms(int count);
+
+
+	List<Film> getPopularFilms(int count, Integer year, Integer minDuration, Integer maxDuration);
+
+
+	List<Film> getTrendingFilms(TrendingWindow window, int count);
+
+
+	List<Film> getRecommendedFilms(Integer userId, int limit);
+
+
+	long getFilmsCount();
+
+
+	long getLikesCount();
 }
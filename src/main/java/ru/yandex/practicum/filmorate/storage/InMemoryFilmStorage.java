@@ -1,38 +1,150 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
-	private final Map<Integer, Film> films = new HashMap<>();
-	private int nextId = 1;
+	private static final int DEFAULT_PAGE_CAPACITY = 100;
+	/** Сколько самых похожих пользователей участвует в рекомендациях фильмов */
+	private static final int SIMILAR_USERS = 50;
+
+	private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+	private final PopularityIndex popularityIndex = new PopularityIndex();
+	/** Вторичные индексы популярности: фильмы каждого года выпуска и каждой продолжительности */
+	private final Map<Integer, PopularityIndex> popularityByYear = new ConcurrentHashMap<>();
+	private final ConcurrentNavigableMap<Integer, PopularityIndex> popularityByDuration = new ConcurrentSkipListMap<>();
+	private final UserLikesIndex userLikes = new UserLikesIndex();
+	private final StripedLocks locks = new StripedLocks();
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	/** Счетчики для метрик: размер ConcurrentSkipListMap считается обходом всей карты */
+	private final LongAdder filmsCount = new LongAdder();
+	private final LongAdder likesCount = new LongAdder();
+	private final LongSupplier clock;
+	private final TrendingIndex trending;
+
+
+	public InMemoryFilmStorage() {
+		this(System::currentTimeMillis);
+	}
+
+
+	InMemoryFilmStorage(LongSupplier clock) {
+		this.clock = clock;
+		this.trending = new TrendingIndex(clock);
+	}
 
 
 	@Override
 	public Film addFilm(Film film) {
-		film.setId(nextId++);
-		films.put(film.getId(), film);
+		film.setId(reserveId());
+		ReentrantLock lock = locks.lockFor(film.getId());
+		lock.lock();
+		try {
+			films.put(film.getId(), film);
+			popularityIndex.add(film.getId(), film.getLikes().size());
+			indexAttributes(film.getId(), null, 0, film, film.getLikes().size());
+			indexLikes(film.getId(), null, film.getLikes());
+			filmsCount.increment();
+			likesCount.add(film.getLikes().size());
+		} finally {
+			lock.unlock();
+		}
 		return film;
 	}
 
 
+	@Override
+	public List<Film> addFilms(List<Film> films) {
+		for (Film film : films) {
+			addFilm(film);
+		}
+		return films;
+	}
+
+
+	/**
+	 * Выдать следующий id фильма
+	 */
+	int reserveId() {
+		return nextId.getAndIncrement();
+	}
+
+
+	/**
+	 * Сохранить фильм с уже назначенным id (восстановление из журнала или снимка)
+	 */
+	void restoreFilm(Film film) {
+		nextId.accumulateAndGet(film.getId() + 1, Math::max);
+		updateFilm(film);
+	}
+
+
 	@Override
 	public Film updateFilm(Film film) {
-		films.put(film.getId(), film);
+		ReentrantLock lock = locks.lockFor(film.getId());
+		lock.lock();
+		try {
+			Film oldFilm = films.put(film.getId(), film);
+			indexLikes(film.getId(), oldFilm == null ? null : oldFilm.getLikes(), film.getLikes());
+			indexAttributes(film.getId(), oldFilm, oldFilm == null ? 0 : oldFilm.getLikes().size(),
+					film, film.getLikes().size());
+			if (oldFilm != null) {
+				popularityIndex.update(film.getId(), oldFilm.getLikes().size(), film.getLikes().size());
+				likesCount.add(-oldFilm.getLikes().size());
+			} else {
+				popularityIndex.add(film.getId(), film.getLikes().size());
+				filmsCount.increment();
+			}
+			likesCount.add(film.getLikes().size());
+		} finally {
+			lock.unlock();
+		}
 		return film;
 	}
 
 
 	@Override
 	public void deleteFilm(Integer id) {
-		films.remove(id);
+		ReentrantLock lock = locks.lockFor(id);
+		lock.lock();
+		try {
+			Film film = films.remove(id);
+			if (film != null) {
+				popularityIndex.remove(id, film.getLikes().size());
+				indexAttributes(id, film, film.getLikes().size(), null, 0);
+				indexLikes(id, film.getLikes(), null);
+				trending.removed(id);
+				filmsCount.decrement();
+				likesCount.add(-film.getLikes().size());
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
 
@@ -46,4 +158,313 @@ public class InMemoryFilmStorage implements FilmStorage {
 	public List<Film> getAllFilms() {
 		return new ArrayList<>(films.values());
 	}
+
+
+	/**
+	 * Поток по живым данным хранилища без копирования: слабо согласован и не блокирует запись
+	 */
+	@Override
+	public Stream<Film> streamFilms() {
+		return films.values().stream();
+	}
+
+
+	/**
+	 * Страница упорядочена по id: tailMap не копирует фильмы, поэтому страница стоит O(limit)
+	 */
+	@Override
+	public List<Film> getFilmsPage(Integer afterId, int limit) {
+		Collection<Film> tail = afterId == null ? films.values() : films.tailMap(afterId, false).values();
+		List<Film> page = new ArrayList<>(Math.min(limit, DEFAULT_PAGE_CAPACITY));
+		Iterator<Film> iterator = tail.iterator();
+		while (page.size() < limit && iterator.hasNext()) {
+			page.add(iterator.next());
+		}
+		return page;
+	}
+
+
+	@Override
+	public List<Film> getFilmsByIds(Collection<Integer> ids) {
+		List<Film> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			Film film = films.get(id);
+			if (film != null) {
+				result.add(film);
+			}
+		}
+		return result;
+	}
+
+
+	@Override
+	public void addLike(Integer filmId, Integer userId) {
+		addLike(filmId, userId, clock.getAsLong());
+	}
+
+
+	/**
+	 * Поставить лайк, поставленный в указанное время (восстановление из журнала)
+	 *
+	 * @param time время лайка в миллисекундах или null, если лайк не учитывается в набирающих популярность
+	 */
+	void addLike(Integer filmId, Integer userId, Long time) {
+		ReentrantLock lock = locks.lockFor(filmId);
+		lock.lock();
+		try {
+			Film film = films.get(filmId);
+			if (film != null && film.getLikes().add(userId.intValue())) {
+				popularityIndex.update(filmId, film.getLikes().size() - 1, film.getLikes().size());
+				indexAttributes(filmId, film, film.getLikes().size() - 1, film, film.getLikes().size());
+				userLikes.add(userId, filmId);
+				if (time != null) {
+					trending.liked(filmId, userId, time);
+				}
+				likesCount.increment();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	@Override
+	public void addLikes(List<Like> likes) {
+		long time = clock.getAsLong();
+		for (Like like : likes) {
+			addLike(like.filmId(), like.userId(), time);
+		}
+	}
+
+
+	@Override
+	public void removeLike(Integer filmId, Integer userId) {
+		ReentrantLock lock = locks.lockFor(filmId);
+		lock.lock();
+		try {
+			Film film = films.get(filmId);
+			if (film != null && film.getLikes().remove(userId.intValue())) {
+				popularityIndex.update(filmId, film.getLikes().size() + 1, film.getLikes().size());
+				indexAttributes(filmId, film, film.getLikes().size() + 1, film, film.getLikes().size());
+				userLikes.remove(userId, filmId);
+				trending.unliked(filmId, userId);
+				likesCount.decrement();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Операции группируются по фильмам: лайки фильма меняются под одной блокировкой,
+	 * а индекс популярности и счетчик лайков обновляются один раз на фильм
+	 */
+	@Override
+	public void applyLikes(List<LikeOperation> operations) {
+		applyLikes(operations, clock.getAsLong());
+	}
+
+
+	/**
+	 * Применить операции с лайками, поставленными в указанное время
+	 */
+	void applyLikes(List<LikeOperation> operations, long time) {
+		Map<Integer, List<LikeOperation>> byFilm = new LinkedHashMap<>();
+		for (LikeOperation operation : operations) {
+			byFilm.computeIfAbsent(operation.filmId(), id -> new ArrayList<>()).add(operation);
+		}
+		for (Map.Entry<Integer, List<LikeOperation>> entry : byFilm.entrySet()) {
+			ReentrantLock lock = locks.lockFor(entry.getKey());
+			lock.lock();
+			try {
+				Film film = films.get(entry.getKey());
+				if (film != null) {
+					IdSet likes = film.getLikes();
+					int oldLikes = likes.size();
+					for (LikeOperation operation : entry.getValue()) {
+						if (operation.op() == LikeOperation.Operation.LIKE) {
+							if (likes.add(operation.userId().intValue())) {
+								userLikes.add(operation.userId(), film.getId());
+								trending.liked(film.getId(), operation.userId(), time);
+							}
+						} else if (likes.remove(operation.userId().intValue())) {
+							userLikes.remove(operation.userId(), film.getId());
+							trending.unliked(film.getId(), operation.userId());
+						}
+					}
+					popularityIndex.update(film.getId(), oldLikes, likes.size());
+					indexAttributes(film.getId(), film, oldLikes, film, likes.size());
+					likesCount.add(likes.size() - oldLikes);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Фильмы берутся из обратного индекса лайков, поэтому запрос стоит O(лайков пользователя)
+	 */
+	@Override
+	public List<Film> getLikedFilms(Integer userId) {
+		return getFilmsByIds(Arrays.stream(userLikes.filmsOf(userId)).boxed().toList());
+	}
+
+
+	@Override
+	public void removeUserLikes(Integer userId) {
+		for (int filmId : userLikes.filmsOf(userId)) {
+			removeLike(filmId, userId);
+		}
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count) {
+		return getFilmsByIds(popularityIndex.top(count));
+	}
+
+
+	/**
+	 * С фильтром по году фильмы перебираются по индексу популярности этого года, продолжительность
+	 * проверяется у каждого; без года сливаются индексы продолжительностей из диапазона.
+	 * В обоих случаях просматриваются только фильмы, подходящие хотя бы под одно условие
+	 */
+	@Override
+	public List<Film> getPopularFilms(int count, Integer year, Integer minDuration, Integer maxDuration) {
+		if (year == null && minDuration == null && maxDuration == null) {
+			return getPopularFilms(count);
+		}
+		int from = minDuration == null ? Integer.MIN_VALUE : minDuration;
+		int to = maxDuration == null ? Integer.MAX_VALUE : maxDuration;
+		List<Integer> ids;
+		if (year != null) {
+			PopularityIndex index = popularityByYear.get(year);
+			if (index == null) {
+				return List.of();
+			}
+			ids = PopularityIndex.top(List.of(index), count, id -> {
+				Film film = films.get(id);
+				return film != null && film.getDuration() != null
+						&& film.getDuration() >= from && film.getDuration() <= to;
+			});
+		} else {
+			ids = PopularityIndex.top(popularityByDuration.subMap(from, true, to, true).values(), count, id -> true);
+		}
+		return getFilmsByIds(ids);
+	}
+
+
+	@Override
+	public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+		return getFilmsByIds(trending.top(window, count));
+	}
+
+
+	/**
+	 * Похожие пользователи — те, у кого больше всего общих лайков с пользователем: они считаются
+	 * слиянием списков лайков его фильмов. Фильмы ранжируются по тому, скольким из похожих
+	 * пользователей они понравились; фильмы, которым пользователь уже поставил лайк, пропускаются
+	 */
+	@Override
+	public List<Film> getRecommendedFilms(Integer userId, int limit) {
+		int[] likedFilms = userLikes.filmsOf(userId);
+		int[][] likers = new int[likedFilms.length][];
+		for (int i = 0; i < likedFilms.length; i++) {
+			Film film = films.get(likedFilms[i]);
+			likers[i] = film == null ? new int[0] : film.getLikes().toSortedArray();
+		}
+		int[] similarUsers = SortedRuns.top(SortedRuns.merge(likers), id -> id == userId, SIMILAR_USERS);
+		int[][] candidates = new int[similarUsers.length][];
+		for (int i = 0; i < similarUsers.length; i++) {
+			candidates[i] = userLikes.filmsOf(similarUsers[i]);
+		}
+		int[] ids = SortedRuns.top(SortedRuns.merge(candidates),
+				id -> Arrays.binarySearch(likedFilms, id) >= 0, limit);
+		return getFilmsByIds(Arrays.stream(ids).boxed().toList());
+	}
+
+
+	/**
+	 * Текущее время хранилища в миллисекундах: им помечаются лайки в журнале
+	 */
+	long currentTimeMillis() {
+		return clock.getAsLong();
+	}
+
+
+	@Override
+	public long getFilmsCount() {
+		return filmsCount.sum();
+	}
+
+
+	@Override
+	public long getLikesCount() {
+		return likesCount.sum();
+	}
+
+
+	/**
+	 * Переместить фильм во вторичных индексах популярности по году выпуска и продолжительности
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param oldFilm прежняя версия фильма (null, если фильма не было)
+	 * @param oldLikes количество лайков, с которым фильм был в индексах
+	 * @param newFilm новая версия фильма (null, если фильм удален)
+	 * @param newLikes новое количество лайков
+	 */
+	private void indexAttributes(int filmId, Film oldFilm, int oldLikes, Film newFilm, int newLikes) {
+		reindex(popularityByYear, filmId, releaseYear(oldFilm), oldLikes, releaseYear(newFilm), newLikes);
+		reindex(popularityByDuration, filmId, oldFilm == null ? null : oldFilm.getDuration(), oldLikes,
+				newFilm == null ? null : newFilm.getDuration(), newLikes);
+	}
+
+	private static void reindex(Map<Integer, PopularityIndex> indexes, int filmId, Integer oldKey, int oldLikes,
+								Integer newKey, int newLikes) {
+		if (Objects.equals(oldKey, newKey)) {
+			if (newKey != null) {
+				indexes.get(newKey).update(filmId, oldLikes, newLikes);
+			}
+			return;
+		}
+		if (newKey != null) {
+			indexes.computeIfAbsent(newKey, key -> new PopularityIndex()).add(filmId, newLikes);
+		}
+		if (oldKey != null) {
+			indexes.get(oldKey).remove(filmId, oldLikes);
+		}
+	}
+
+	private static Integer releaseYear(Film film) {
+		return film == null || film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+	}
+
+	/**
+	 * Привести обратный индекс лайков к новому множеству лайков фильма. Снятые лайки вычитаются
+	 * и из набирающих популярность; добавленные так лайки туда не попадают, так как время лайка неизвестно
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param oldLikes прежние лайки фильма (null, если фильма не было)
+	 * @param newLikes новые лайки фильма (null, если фильм удален)
+	 */
+	private void indexLikes(int filmId, IdSet oldLikes, IdSet newLikes) {
+		if (oldLikes != null) {
+			for (int userId : oldLikes.toSortedArray()) {
+				if (newLikes == null || !newLikes.contains(userId)) {
+					userLikes.remove(userId, filmId);
+					trending.unliked(filmId, userId);
+				}
+			}
+		}
+		if (newLikes != null) {
+			for (int userId : newLikes.toSortedArray()) {
+				if (oldLikes == null || !oldLikes.contains(userId)) {
+					userLikes.add(userId, filmId);
+				}
+			}
+		}
+	}
 }
@@ -1,38 +1,110 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryUserStorage implements UserStorage {
-	private final Map<Integer, User> users = new HashMap<>();
-	private int nextId = 1;
+	private static final int DEFAULT_PAGE_CAPACITY = 100;
+
+	private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+	private final StripedLocks locks = new StripedLocks();
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	/** Счетчики для метрик: размер ConcurrentSkipListMap считается обходом всей карты */
+	private final LongAdder usersCount = new LongAdder();
+	/** Количество записей во всех списках друзей: каждая дружба записана у обоих пользователей */
+	private final LongAdder friendLinksCount = new LongAdder();
 
 
 	@Override
 	public User addUser(User user) {
-		user.setId(nextId++);
+		user.setId(reserveId());
 		users.put(user.getId(), user);
+		usersCount.increment();
+		friendLinksCount.add(user.getFriends().size());
 		return user;
 	}
 
 
+	@Override
+	public List<User> addUsers(List<User> users) {
+		for (User user : users) {
+			addUser(user);
+		}
+		return users;
+	}
+
+
+	/**
+	 * Выдать следующий id пользователя
+	 */
+	int reserveId() {
+		return nextId.getAndIncrement();
+	}
+
+
+	/**
+	 * Сохранить пользователя с уже назначенным id (восстановление из журнала или снимка)
+	 */
+	void restoreUser(User user) {
+		nextId.accumulateAndGet(user.getId() + 1, Math::max);
+		updateUser(user);
+	}
+
+
+	/**
+	 * Друзья переносятся из сохраненного пользователя. Новый пользователь (восстановление) сохраняется с друзьями
+	 */
 	@Override
 	public User updateUser(User user) {
-		users.put(user.getId(), user);
+		ReentrantLock lock = locks.lockFor(user.getId());
+		lock.lock();
+		try {
+			User oldUser = users.get(user.getId());
+			if (oldUser != null) {
+				user.setFriends(oldUser.getFriends());
+			} else {
+				usersCount.increment();
+				friendLinksCount.add(user.getFriends().size());
+			}
+			users.put(user.getId(), user);
+		} finally {
+			lock.unlock();
+		}
 		return user;
 	}
 
 
 	@Override
 	public void deleteUser(Integer id) {
-		users.remove(id);
+		ReentrantLock lock = locks.lockFor(id);
+		lock.lock();
+		try {
+			User user = users.remove(id);
+			if (user != null) {
+				usersCount.decrement();
+				friendLinksCount.add(-user.getFriends().size());
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
 
@@ -46,4 +118,134 @@ public class InMemoryUserStorage implements UserStorage {
 	public List<User> getAllUsers() {
 		return new ArrayList<>(users.values());
 	}
+
+
+	/**
+	 * Поток по живым данным хранилища без копирования: слабо согласован и не блокирует запись
+	 */
+	@Override
+	public Stream<User> streamUsers() {
+		return users.values().stream();
+	}
+
+
+	/**
+	 * Страница упорядочена по id: tailMap не копирует пользователей, поэтому страница стоит O(limit)
+	 */
+	@Override
+	public List<User> getUsersPage(Integer afterId, int limit) {
+		Collection<User> tail = afterId == null ? users.values() : users.tailMap(afterId, false).values();
+		List<User> page = new ArrayList<>(Math.min(limit, DEFAULT_PAGE_CAPACITY));
+		Iterator<User> iterator = tail.iterator();
+		while (page.size() < limit && iterator.hasNext()) {
+			page.add(iterator.next());
+		}
+		return page;
+	}
+
+
+	@Override
+	public List<User> getUsersByIds(Collection<Integer> ids) {
+		List<User> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			User user = users.get(id);
+			if (user != null) {
+				result.add(user);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Дружба хранится в обоих пользователях, поэтому обе стороны изменяются под блокировками
+	 * обоих пользователей: параллельные добавление и удаление одной пары не оставят дружбу односторонней
+	 */
+	@Override
+	public void addFriend(Integer userId, Integer friendId) {
+		locks.lockBoth(userId, friendId);
+		try {
+			User user = users.get(userId);
+			User friend = users.get(friendId);
+			if (user != null && friend != null) {
+				if (user.getFriends().add(friendId.intValue())) {
+					friendLinksCount.increment();
+				}
+				if (friend.getFriends().add(userId.intValue())) {
+					friendLinksCount.increment();
+				}
+			}
+		} finally {
+			locks.unlockBoth(userId, friendId);
+		}
+	}
+
+
+	@Override
+	public void addFriends(List<Friendship> friendships) {
+		for (Friendship friendship : friendships) {
+			addFriend(friendship.userId(), friendship.friendId());
+		}
+	}
+
+
+	@Override
+	public void removeFriend(Integer userId, Integer friendId) {
+		locks.lockBoth(userId, friendId);
+		try {
+			User user = users.get(userId);
+			User friend = users.get(friendId);
+			if (user != null && user.getFriends().remove(friendId.intValue())) {
+				friendLinksCount.decrement();
+			}
+			if (friend != null && friend.getFriends().remove(userId.intValue())) {
+				friendLinksCount.decrement();
+			}
+		} finally {
+			locks.unlockBoth(userId, friendId);
+		}
+	}
+
+
+	@Override
+	public List<User> getCommonFriends(Integer userId, Integer otherId) {
+		User user = users.get(userId);
+		User other = users.get(otherId);
+		if (user == null || other == null) {
+			return new ArrayList<>();
+		}
+		return getUsersByIds(Arrays.stream(user.getFriends().intersect(other.getFriends())).boxed().toList());
+	}
+
+
+	@Override
+	public List<User> getFriendRecommendations(Integer userId, int limit) {
+		User user = users.get(userId);
+		if (user == null) {
+			return new ArrayList<>();
+		}
+		IdSet friends = user.getFriends();
+		int[] friendIds = friends.toSortedArray();
+		int[][] friendsOfFriends = new int[friendIds.length][];
+		for (int i = 0; i < friendIds.length; i++) {
+			User friend = users.get(friendIds[i]);
+			friendsOfFriends[i] = friend == null ? new int[0] : friend.getFriends().toSortedArray();
+		}
+		// количество общих друзей кандидата равно количеству списков друзей, в которых он встречается
+		int[] ids = SortedRuns.top(SortedRuns.merge(friendsOfFriends),
+				id -> id == userId || friends.contains(id), limit);
+		return getUsersByIds(Arrays.stream(ids).boxed().toList());
+	}
+
+
+	@Override
+	public long getUsersCount() {
+		return usersCount.sum();
+	}
+
+
+	@Override
+	public long getFriendshipsCount() {
+		return friendLinksCount.sum() / 2;
+	}
 }
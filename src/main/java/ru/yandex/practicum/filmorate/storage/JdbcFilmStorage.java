@@ -0,0 +1,537 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Хранилище фильмов в реляционной базе данных.
+ * Лайки хранятся в таблице film_likes, количество лайков дублируется в films.like_count,
+ * чтобы популярные фильмы читались по индексу без группировки всех лайков
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+	private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration FROM films";
+	private static final String INSERT_FILM = "INSERT INTO films (name, description, release_date, duration, like_count) "
+			+ "VALUES (:name, :description, :releaseDate, :duration, :likeCount)";
+	private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) SELECT :filmId, :userId "
+			+ "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = :filmId AND user_id = :userId)";
+	private static final String DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId";
+	/** Сколько самых похожих пользователей участвует в рекомендациях фильмов */
+	private static final int SIMILAR_USERS = 50;
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final TransactionTemplate transactionTemplate;
+
+
+	@Autowired
+	public JdbcFilmStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactionTemplate) {
+		this.jdbc = jdbc;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+
+	@Override
+	public Film addFilm(Film film) {
+		transactionTemplate.executeWithoutResult(status -> {
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbc.update(INSERT_FILM, filmParams(film), keyHolder, new String[]{"id"});
+			film.setId(keyHolder.getKeyAs(Integer.class));
+			insertLikes(film);
+		});
+		return film;
+	}
+
+
+	/**
+	 * Фильмы добавляются одним пакетом в одной транзакции, id читаются из сгенерированных ключей пакета
+	 */
+	@Override
+	public List<Film> addFilms(List<Film> films) {
+		if (films.isEmpty()) {
+			return films;
+		}
+		SqlParameterSource[] batch = new SqlParameterSource[films.size()];
+		for (int i = 0; i < films.size(); i++) {
+			batch[i] = filmParams(films.get(i));
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbc.batchUpdate(INSERT_FILM, batch, keyHolder, new String[]{"id"});
+			List<Map<String, Object>> keys = keyHolder.getKeyList();
+			for (int i = 0; i < films.size(); i++) {
+				films.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+				insertLikes(films.get(i));
+			}
+		});
+		return films;
+	}
+
+
+	/**
+	 * Лайки обновляются разницей с сохраненными: оставшиеся строки film_likes сохраняют время лайка,
+	 * и старые лайки не попадают в окна набирающих популярность фильмов
+	 */
+	@Override
+	public Film updateFilm(Film film) {
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbc.update("UPDATE films SET name = :name, description = :description, release_date = :releaseDate, "
+					+ "duration = :duration, like_count = :likeCount WHERE id = :id", filmParams(film));
+			List<Integer> storedLikes = jdbc.queryForList("SELECT user_id FROM film_likes WHERE film_id = :id",
+					Map.of("id", film.getId()), Integer.class);
+			List<SqlParameterSource> removed = new ArrayList<>();
+			for (int userId : storedLikes) {
+				if (!film.getLikes().contains(userId)) {
+					removed.add(likeParams(film.getId(), userId));
+				}
+			}
+			Set<Integer> stored = new HashSet<>(storedLikes);
+			List<SqlParameterSource> added = new ArrayList<>();
+			for (int userId : film.getLikes().toSortedArray()) {
+				if (!stored.contains(userId)) {
+					added.add(likeParams(film.getId(), userId));
+				}
+			}
+			if (!removed.isEmpty()) {
+				jdbc.batchUpdate(DELETE_LIKE, removed.toArray(SqlParameterSource[]::new));
+			}
+			if (!added.isEmpty()) {
+				jdbc.batchUpdate(INSERT_LIKE, added.toArray(SqlParameterSource[]::new));
+			}
+		});
+		return film;
+	}
+
+
+	@Override
+	public void deleteFilm(Integer id) {
+		jdbc.update("DELETE FROM films WHERE id = :id", Map.of("id", id));
+	}
+
+
+	@Override
+	public Film getFilmById(Integer id) {
+		List<Film> films = jdbc.query(SELECT_FILMS + " WHERE id = :id", Map.of("id", id), (rs, rowNum) -> mapFilm(rs));
+		return films.isEmpty() ? null : withLikes(films).get(0);
+	}
+
+
+	@Override
+	public List<Film> getAllFilms() {
+		Map<Integer, Film> films = new LinkedHashMap<>();
+		jdbc.query(SELECT_FILMS + " ORDER BY id", rs -> {
+			Film film = mapFilm(rs);
+			films.put(film.getId(), film);
+		});
+		jdbc.query("SELECT film_id, user_id FROM film_likes", rs -> {
+			Film film = films.get(rs.getInt("film_id"));
+			if (film != null) {
+				film.getLikes().add(rs.getInt("user_id"));
+			}
+		});
+		return new ArrayList<>(films.values());
+	}
+
+
+	/**
+	 * Фильмы читаются одним запросом с лайками, упорядоченным по id, и собираются по мере чтения курсора.
+	 * Соединение с базой удерживается до закрытия потока
+	 */
+	@Override
+	public Stream<Film> streamFilms() {
+		Stream<LikeRow> rows = jdbc.queryForStream("SELECT f.id, f.name, f.description, f.release_date, f.duration, "
+				+ "l.user_id FROM films f LEFT JOIN film_likes l ON l.film_id = f.id ORDER BY f.id", Map.of(),
+				(rs, rowNum) -> new LikeRow(mapFilm(rs), (Integer) rs.getObject("user_id")));
+		Iterator<LikeRow> iterator = rows.iterator();
+		Iterator<Film> films = new Iterator<>() {
+			private LikeRow pending = iterator.hasNext() ? iterator.next() : null;
+
+			@Override
+			public boolean hasNext() {
+				return pending != null;
+			}
+
+			@Override
+			public Film next() {
+				if (pending == null) {
+					throw new NoSuchElementException();
+				}
+				Film film = pending.film();
+				do {
+					if (pending.userId() != null) {
+						film.getLikes().add(pending.userId().intValue());
+					}
+					pending = iterator.hasNext() ? iterator.next() : null;
+				} while (pending != null && pending.film().getId().equals(film.getId()));
+				return film;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(films, Spliterator.ORDERED), false)
+				.onClose(rows::close);
+	}
+
+
+	@Override
+	public List<Film> getFilmsPage(Integer afterId, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("afterId", afterId == null ? Integer.MIN_VALUE : afterId)
+				.addValue("limit", limit);
+		return withLikes(jdbc.query(SELECT_FILMS + " WHERE id > :afterId ORDER BY id LIMIT :limit", params,
+				(rs, rowNum) -> mapFilm(rs)));
+	}
+
+
+	@Override
+	public List<Film> getFilmsByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Integer, Film> films = new LinkedHashMap<>();
+		jdbc.query(SELECT_FILMS + " WHERE id IN (:ids)", Map.of("ids", ids), rs -> {
+			Film film = mapFilm(rs);
+			films.put(film.getId(), film);
+		});
+		withLikes(new ArrayList<>(films.values()));
+		List<Film> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			Film film = films.get(id);
+			if (film != null) {
+				result.add(film);
+			}
+		}
+		return result;
+	}
+
+
+	@Override
+	public void addLike(Integer filmId, Integer userId) {
+		MapSqlParameterSource params = likeParams(filmId, userId);
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				if (jdbc.update(INSERT_LIKE, params) > 0) {
+					jdbc.update("UPDATE films SET like_count = like_count + 1 WHERE id = :filmId", params);
+				}
+			});
+		} catch (DuplicateKeyException e) {
+			// такой же лайк параллельно добавил другой запрос
+		}
+	}
+
+
+	/**
+	 * Лайки добавляются одним пакетом, после чего счетчик каждого фильма увеличивается один раз
+	 * на количество его новых лайков. Если такой же лайк параллельно добавил другой запрос,
+	 * пакет откатывается и лайки добавляются по одному
+	 */
+	@Override
+	public void addLikes(List<Like> likes) {
+		if (likes.isEmpty()) {
+			return;
+		}
+		SqlParameterSource[] batch = new SqlParameterSource[likes.size()];
+		for (int i = 0; i < likes.size(); i++) {
+			batch[i] = likeParams(likes.get(i).filmId(), likes.get(i).userId());
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				int[] inserted = jdbc.batchUpdate(INSERT_LIKE, batch);
+				Map<Integer, Integer> added = new LinkedHashMap<>();
+				for (int i = 0; i < inserted.length; i++) {
+					if (inserted[i] > 0) {
+						added.merge(likes.get(i).filmId(), 1, Integer::sum);
+					}
+				}
+				updateLikeCounts(added);
+			});
+		} catch (DuplicateKeyException e) {
+			for (Like like : likes) {
+				addLike(like.filmId(), like.userId());
+			}
+		}
+	}
+
+
+	@Override
+	public void removeLike(Integer filmId, Integer userId) {
+		MapSqlParameterSource params = likeParams(filmId, userId);
+		transactionTemplate.executeWithoutResult(status -> {
+			if (jdbc.update(DELETE_LIKE, params) > 0) {
+				jdbc.update("UPDATE films SET like_count = like_count - 1 WHERE id = :filmId", params);
+			}
+		});
+	}
+
+
+	/**
+	 * Снятия и постановки лайков выполняются двумя пакетами в одной транзакции, после чего счетчик
+	 * каждого фильма меняется один раз. Каждая пара фильм–пользователь должна встречаться в пакете
+	 * не больше одного раза, иначе порядок операций над ней не сохранится
+	 */
+	@Override
+	public void applyLikes(List<LikeOperation> operations) {
+		List<LikeOperation> added = new ArrayList<>();
+		List<LikeOperation> removed = new ArrayList<>();
+		for (LikeOperation operation : operations) {
+			(operation.op() == LikeOperation.Operation.LIKE ? added : removed).add(operation);
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				Map<Integer, Integer> deltas = new LinkedHashMap<>();
+				countChanges(removed, jdbc.batchUpdate(DELETE_LIKE, likeBatch(removed)), -1, deltas);
+				countChanges(added, jdbc.batchUpdate(INSERT_LIKE, likeBatch(added)), 1, deltas);
+				updateLikeCounts(deltas);
+			});
+		} catch (DuplicateKeyException e) {
+			for (LikeOperation operation : operations) {
+				if (operation.op() == LikeOperation.Operation.LIKE) {
+					addLike(operation.filmId(), operation.userId());
+				} else {
+					removeLike(operation.filmId(), operation.userId());
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public List<Film> getLikedFilms(Integer userId) {
+		return withLikes(jdbc.query(SELECT_FILMS + " WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = :userId) "
+				+ "ORDER BY id", Map.of("userId", userId), (rs, rowNum) -> mapFilm(rs)));
+	}
+
+
+	/**
+	 * Строки film_likes удаляются одним запросом, который возвращает id фильмов удаленных строк,
+	 * и счетчики уменьшаются ровно у этих фильмов: лайк, поставленный параллельно, либо удаляется
+	 * вместе со своим фильмом в списке, либо остается вместе со счетчиком
+	 */
+	@Override
+	public void removeUserLikes(Integer userId) {
+		transactionTemplate.executeWithoutResult(status -> {
+			List<Integer> filmIds = jdbc.queryForList("SELECT film_id FROM OLD TABLE "
+					+ "(DELETE FROM film_likes WHERE user_id = :userId)", Map.of("userId", userId), Integer.class);
+			Map<Integer, Integer> deltas = new LinkedHashMap<>();
+			for (Integer filmId : filmIds) {
+				deltas.merge(filmId, -1, Integer::sum);
+			}
+			updateLikeCounts(deltas);
+		});
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count) {
+		return withLikes(jdbc.query(SELECT_FILMS + " ORDER BY like_count DESC, id LIMIT :count", Map.of("count", count),
+				(rs, rowNum) -> mapFilm(rs)));
+	}
+
+
+	/**
+	 * Год выпуска проверяется диапазоном дат, чтобы условия по году и продолжительности
+	 * выбирались по индексам films (release_date, ...) и films (duration, ...)
+	 */
+	@Override
+	public List<Film> getPopularFilms(int count, Integer year, Integer minDuration, Integer maxDuration) {
+		MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+		List<String> conditions = new ArrayList<>();
+		if (year != null) {
+			conditions.add("release_date >= :yearStart AND release_date < :nextYearStart");
+			params.addValue("yearStart", Date.valueOf(LocalDate.of(year, 1, 1)))
+					.addValue("nextYearStart", Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+		}
+		if (minDuration != null) {
+			conditions.add("duration >= :minDuration");
+			params.addValue("minDuration", minDuration);
+		}
+		if (maxDuration != null) {
+			conditions.add("duration <= :maxDuration");
+			params.addValue("maxDuration", maxDuration);
+		}
+		String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+		return withLikes(jdbc.query(SELECT_FILMS + where + " ORDER BY like_count DESC, id LIMIT :count", params,
+				(rs, rowNum) -> mapFilm(rs)));
+	}
+
+
+	/**
+	 * Лайки за окно выбираются по индексу film_likes (created_at, film_id) без обращения к таблице
+	 */
+	@Override
+	public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("since", Timestamp.from(Instant.now().minus(window.getDuration())))
+				.addValue("count", count);
+		List<Integer> ids = jdbc.queryForList("SELECT film_id FROM film_likes WHERE created_at >= :since "
+				+ "GROUP BY film_id ORDER BY COUNT(*) DESC, film_id LIMIT :count", params, Integer.class);
+		return getFilmsByIds(ids);
+	}
+
+
+	/**
+	 * Похожие пользователи и рейтинг фильмов считаются в базе двумя группировками по индексам film_likes
+	 */
+	@Override
+	public List<Film> getRecommendedFilms(Integer userId, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("userId", userId)
+				.addValue("similarUsers", SIMILAR_USERS)
+				.addValue("limit", limit);
+		List<Integer> ids = jdbc.queryForList("SELECT l.film_id FROM film_likes l JOIN ("
+				+ "SELECT o.user_id FROM film_likes m JOIN film_likes o ON o.film_id = m.film_id "
+				+ "WHERE m.user_id = :userId AND o.user_id <> :userId "
+				+ "GROUP BY o.user_id ORDER BY COUNT(*) DESC, o.user_id LIMIT :similarUsers) s ON s.user_id = l.user_id "
+				+ "WHERE NOT EXISTS (SELECT 1 FROM film_likes m WHERE m.user_id = :userId AND m.film_id = l.film_id) "
+				+ "GROUP BY l.film_id ORDER BY COUNT(*) DESC, l.film_id LIMIT :limit", params, Integer.class);
+		return getFilmsByIds(ids);
+	}
+
+
+	@Override
+	public long getFilmsCount() {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM films", Map.of(), Long.class);
+	}
+
+
+	/**
+	 * Лайки считаются по счетчикам в films, а не по строкам film_likes
+	 */
+	@Override
+	public long getLikesCount() {
+		return jdbc.queryForObject("SELECT COALESCE(SUM(like_count), 0) FROM films", Map.of(), Long.class);
+	}
+
+
+	/**
+	 * Изменить счетчики лайков фильмов одним пакетом
+	 *
+	 * @param deltas изменение количества лайков по id фильма
+	 */
+	private void updateLikeCounts(Map<Integer, Integer> deltas) {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		SqlParameterSource[] batch = new SqlParameterSource[deltas.size()];
+		int i = 0;
+		for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+			batch[i++] = new MapSqlParameterSource()
+					.addValue("filmId", delta.getKey())
+					.addValue("delta", delta.getValue());
+		}
+		jdbc.batchUpdate("UPDATE films SET like_count = like_count + :delta WHERE id = :filmId", batch);
+	}
+
+	private SqlParameterSource[] likeBatch(List<LikeOperation> operations) {
+		SqlParameterSource[] batch = new SqlParameterSource[operations.size()];
+		for (int i = 0; i < operations.size(); i++) {
+			batch[i] = likeParams(operations.get(i).filmId(), operations.get(i).userId());
+		}
+		return batch;
+	}
+
+	/**
+	 * Добавить к изменениям счетчиков строки film_likes, которые пакет действительно изменил
+	 */
+	private static void countChanges(List<LikeOperation> operations, int[] updated, int delta,
+			Map<Integer, Integer> deltas) {
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] > 0) {
+				deltas.merge(operations.get(i).filmId(), delta, Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * Загрузить лайки фильмов одним запросом
+	 */
+	private List<Film> withLikes(List<Film> films) {
+		if (films.isEmpty()) {
+			return films;
+		}
+		Map<Integer, Film> byId = new LinkedHashMap<>();
+		for (Film film : films) {
+			byId.put(film.getId(), film);
+		}
+		jdbc.query("SELECT film_id, user_id FROM film_likes WHERE film_id IN (:ids)", Map.of("ids", byId.keySet()),
+				rs -> {
+					byId.get(rs.getInt("film_id")).getLikes().add(rs.getInt("user_id"));
+				});
+		return films;
+	}
+
+	/**
+	 * Сохранить лайки фильма пакетом
+	 */
+	private void insertLikes(Film film) {
+		int[] userIds = film.getLikes().toSortedArray();
+		if (userIds.length == 0) {
+			return;
+		}
+		SqlParameterSource[] batch = new SqlParameterSource[userIds.length];
+		for (int i = 0; i < userIds.length; i++) {
+			batch[i] = likeParams(film.getId(), userIds[i]);
+		}
+		jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (:filmId, :userId)", batch);
+	}
+
+	private static MapSqlParameterSource filmParams(Film film) {
+		return new MapSqlParameterSource()
+				.addValue("id", film.getId())
+				.addValue("name", film.getName())
+				.addValue("description", film.getDescription())
+				.addValue("releaseDate", film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()))
+				.addValue("duration", film.getDuration())
+				.addValue("likeCount", film.getLikes().size());
+	}
+
+	private static MapSqlParameterSource likeParams(Integer filmId, Integer userId) {
+		return new MapSqlParameterSource()
+				.addValue("filmId", filmId)
+				.addValue("userId", userId);
+	}
+
+	private static Film mapFilm(ResultSet rs) throws SQLException {
+		Film film = new Film();
+		film.setId(rs.getInt("id"));
+		film.setName(rs.getString("name"));
+		film.setDescription(rs.getString("description"));
+		Date releaseDate = rs.getDate("release_date");
+		film.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
+		film.setDuration((Integer) rs.getObject("duration"));
+		return film;
+	}
+
+	private record LikeRow(Film film, Integer userId) {
+	}
+}
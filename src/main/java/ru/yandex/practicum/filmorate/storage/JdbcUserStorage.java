@@ -0,0 +1,359 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Хранилище пользователей в реляционной базе данных.
+ * Дружба симметрична и хранится в таблице friendships двумя строками на пару,
+ * поэтому друзья любого пользователя читаются по первичному ключу
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class JdbcUserStorage implements UserStorage {
+	private static final String SELECT_USERS = "SELECT id, email, login, name, birthday FROM users";
+	private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) "
+			+ "VALUES (:email, :login, :name, :birthday)";
+	private static final String INSERT_FRIEND = "INSERT INTO friendships (user_id, friend_id) SELECT :userId, :friendId "
+			+ "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = :userId AND friend_id = :friendId)";
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final TransactionTemplate transactionTemplate;
+
+
+	@Autowired
+	public JdbcUserStorage(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactionTemplate) {
+		this.jdbc = jdbc;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+
+	@Override
+	public User addUser(User user) {
+		transactionTemplate.executeWithoutResult(status -> {
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbc.update(INSERT_USER, userParams(user), keyHolder, new String[]{"id"});
+			user.setId(keyHolder.getKeyAs(Integer.class));
+			insertFriends(user);
+		});
+		return user;
+	}
+
+
+	/**
+	 * Пользователи добавляются одним пакетом в одной транзакции, id читаются из сгенерированных ключей пакета
+	 */
+	@Override
+	public List<User> addUsers(List<User> users) {
+		if (users.isEmpty()) {
+			return users;
+		}
+		SqlParameterSource[] batch = new SqlParameterSource[users.size()];
+		for (int i = 0; i < users.size(); i++) {
+			batch[i] = userParams(users.get(i));
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbc.batchUpdate(INSERT_USER, batch, keyHolder, new String[]{"id"});
+			List<Map<String, Object>> keys = keyHolder.getKeyList();
+			for (int i = 0; i < users.size(); i++) {
+				users.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+				insertFriends(users.get(i));
+			}
+		});
+		return users;
+	}
+
+
+	@Override
+	public User updateUser(User user) {
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbc.update("UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday "
+					+ "WHERE id = :id", userParams(user));
+		});
+		user.setFriends(new IdSet());
+		return withFriends(List.of(user)).get(0);
+	}
+
+
+	@Override
+	public void deleteUser(Integer id) {
+		jdbc.update("DELETE FROM users WHERE id = :id", Map.of("id", id));
+	}
+
+
+	@Override
+	public User getUserById(Integer id) {
+		List<User> users = jdbc.query(SELECT_USERS + " WHERE id = :id", Map.of("id", id), (rs, rowNum) -> mapUser(rs));
+		return users.isEmpty() ? null : withFriends(users).get(0);
+	}
+
+
+	@Override
+	public List<User> getAllUsers() {
+		Map<Integer, User> users = new LinkedHashMap<>();
+		jdbc.query(SELECT_USERS + " ORDER BY id", rs -> {
+			User user = mapUser(rs);
+			users.put(user.getId(), user);
+		});
+		jdbc.query("SELECT user_id, friend_id FROM friendships", rs -> {
+			User user = users.get(rs.getInt("user_id"));
+			if (user != null) {
+				user.getFriends().add(rs.getInt("friend_id"));
+			}
+		});
+		return new ArrayList<>(users.values());
+	}
+
+
+	/**
+	 * Пользователи читаются одним запросом с друзьями, упорядоченным по id, и собираются по мере чтения курсора.
+	 * Соединение с базой удерживается до закрытия потока
+	 */
+	@Override
+	public Stream<User> streamUsers() {
+		Stream<FriendRow> rows = jdbc.queryForStream("SELECT u.id, u.email, u.login, u.name, u.birthday, "
+				+ "f.friend_id FROM users u LEFT JOIN friendships f ON f.user_id = u.id ORDER BY u.id", Map.of(),
+				(rs, rowNum) -> new FriendRow(mapUser(rs), (Integer) rs.getObject("friend_id")));
+		Iterator<FriendRow> iterator = rows.iterator();
+		Iterator<User> users = new Iterator<>() {
+			private FriendRow pending = iterator.hasNext() ? iterator.next() : null;
+
+			@Override
+			public boolean hasNext() {
+				return pending != null;
+			}
+
+			@Override
+			public User next() {
+				if (pending == null) {
+					throw new NoSuchElementException();
+				}
+				User user = pending.user();
+				do {
+					if (pending.friendId() != null) {
+						user.getFriends().add(pending.friendId().intValue());
+					}
+					pending = iterator.hasNext() ? iterator.next() : null;
+				} while (pending != null && pending.user().getId().equals(user.getId()));
+				return user;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(users, Spliterator.ORDERED), false)
+				.onClose(rows::close);
+	}
+
+
+	@Override
+	public List<User> getUsersPage(Integer afterId, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("afterId", afterId == null ? Integer.MIN_VALUE : afterId)
+				.addValue("limit", limit);
+		return withFriends(jdbc.query(SELECT_USERS + " WHERE id > :afterId ORDER BY id LIMIT :limit", params,
+				(rs, rowNum) -> mapUser(rs)));
+	}
+
+
+	@Override
+	public List<User> getUsersByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Integer, User> users = new LinkedHashMap<>();
+		jdbc.query(SELECT_USERS + " WHERE id IN (:ids)", Map.of("ids", ids), rs -> {
+			User user = mapUser(rs);
+			users.put(user.getId(), user);
+		});
+		withFriends(new ArrayList<>(users.values()));
+		List<User> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			User user = users.get(id);
+			if (user != null) {
+				result.add(user);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Обе строки дружбы добавляются одним пакетом в одной транзакции
+	 */
+	@Override
+	public void addFriend(Integer userId, Integer friendId) {
+		try {
+			transactionTemplate.executeWithoutResult(status ->
+					jdbc.batchUpdate(INSERT_FRIEND, friendPair(userId, friendId)));
+		} catch (DuplicateKeyException e) {
+			// такую же дружбу параллельно добавил другой запрос
+		}
+	}
+
+
+	/**
+	 * Все дружбы добавляются одним пакетом в одной транзакции. Если такую же дружбу параллельно добавил
+	 * другой запрос, пакет откатывается и дружбы добавляются по одной
+	 */
+	@Override
+	public void addFriends(List<Friendship> friendships) {
+		if (friendships.isEmpty()) {
+			return;
+		}
+		List<SqlParameterSource> batch = new ArrayList<>(friendships.size() * 2);
+		for (Friendship friendship : friendships) {
+			batch.addAll(List.of(friendPair(friendship.userId(), friendship.friendId())));
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status ->
+					jdbc.batchUpdate(INSERT_FRIEND, batch.toArray(new SqlParameterSource[0])));
+		} catch (DuplicateKeyException e) {
+			for (Friendship friendship : friendships) {
+				addFriend(friendship.userId(), friendship.friendId());
+			}
+		}
+	}
+
+
+	@Override
+	public void removeFriend(Integer userId, Integer friendId) {
+		transactionTemplate.executeWithoutResult(status ->
+				jdbc.batchUpdate("DELETE FROM friendships WHERE user_id = :userId AND friend_id = :friendId",
+						friendPair(userId, friendId)));
+	}
+
+
+	/**
+	 * Общие друзья находятся соединением таблицы дружбы с собой по индексу первичного ключа
+	 */
+	@Override
+	public List<User> getCommonFriends(Integer userId, Integer otherId) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("userId", userId)
+				.addValue("otherId", otherId);
+		return withFriends(jdbc.query(SELECT_USERS + " WHERE id IN (SELECT f.friend_id FROM friendships f "
+				+ "JOIN friendships o ON o.friend_id = f.friend_id AND o.user_id = :otherId "
+				+ "WHERE f.user_id = :userId) ORDER BY id", params, (rs, rowNum) -> mapUser(rs)));
+	}
+
+
+	/**
+	 * Кандидаты и количество общих друзей считаются в базе по индексам friendships
+	 */
+	@Override
+	public List<User> getFriendRecommendations(Integer userId, int limit) {
+		MapSqlParameterSource params = new MapSqlParameterSource()
+				.addValue("userId", userId)
+				.addValue("limit", limit);
+		List<Integer> ids = jdbc.queryForList("SELECT c.friend_id FROM friendships f "
+				+ "JOIN friendships c ON c.user_id = f.friend_id "
+				+ "WHERE f.user_id = :userId AND c.friend_id <> :userId AND NOT EXISTS "
+				+ "(SELECT 1 FROM friendships o WHERE o.user_id = :userId AND o.friend_id = c.friend_id) "
+				+ "GROUP BY c.friend_id ORDER BY COUNT(*) DESC, c.friend_id LIMIT :limit", params, Integer.class);
+		return getUsersByIds(ids);
+	}
+
+
+	@Override
+	public long getUsersCount() {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM users", Map.of(), Long.class);
+	}
+
+
+	/**
+	 * Каждая дружба хранится двумя строками
+	 */
+	@Override
+	public long getFriendshipsCount() {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM friendships", Map.of(), Long.class) / 2;
+	}
+
+
+	/**
+	 * Загрузить друзей пользователей одним запросом
+	 */
+	private List<User> withFriends(List<User> users) {
+		if (users.isEmpty()) {
+			return users;
+		}
+		Map<Integer, User> byId = new LinkedHashMap<>();
+		for (User user : users) {
+			byId.put(user.getId(), user);
+		}
+		jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)", Map.of("ids", byId.keySet()),
+				rs -> {
+					byId.get(rs.getInt("user_id")).getFriends().add(rs.getInt("friend_id"));
+				});
+		return users;
+	}
+
+	/**
+	 * Сохранить друзей пользователя пакетом, по две строки на каждую дружбу
+	 */
+	private void insertFriends(User user) {
+		int[] friendIds = user.getFriends().toSortedArray();
+		if (friendIds.length == 0) {
+			return;
+		}
+		List<SqlParameterSource> batch = new ArrayList<>(friendIds.length * 2);
+		for (int friendId : friendIds) {
+			batch.addAll(List.of(friendPair(user.getId(), friendId)));
+		}
+		jdbc.batchUpdate(INSERT_FRIEND, batch.toArray(new SqlParameterSource[0]));
+	}
+
+	private static SqlParameterSource[] friendPair(Integer userId, Integer friendId) {
+		return new SqlParameterSource[]{
+				new MapSqlParameterSource().addValue("userId", userId).addValue("friendId", friendId),
+				new MapSqlParameterSource().addValue("userId", friendId).addValue("friendId", userId)
+		};
+	}
+
+	private static MapSqlParameterSource userParams(User user) {
+		return new MapSqlParameterSource()
+				.addValue("id", user.getId())
+				.addValue("email", user.getEmail())
+				.addValue("login", user.getLogin())
+				.addValue("name", user.getName())
+				.addValue("birthday", user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+	}
+
+	private static User mapUser(ResultSet rs) throws SQLException {
+		User user = new User();
+		user.setId(rs.getInt("id"));
+		user.setEmail(rs.getString("email"));
+		user.setLogin(rs.getString("login"));
+		user.setName(rs.getString("name"));
+		Date birthday = rs.getDate("birthday");
+		user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+		return user;
+	}
+
+	private record FriendRow(User user, Integer friendId) {
+	}
+}
@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Журнал изменений хранилища (write-ahead log) со снимками состояния.
+ * <p>
+ * Каждое изменение дописывается в конец текущего сегмента журнала строкой {@code <seq>\t<json>}.
+ * Запись на диск выполняется групповым коммитом: поток, которому нужна надежность, сбрасывает на диск
+ * все накопленные к этому моменту записи одним вызовом {@code force}, остальные потоки просто дожидаются его.
+ * <p>
+ * Снимок пишется без остановки записи: сначала журнал переключается на новый сегмент, начинающийся с номера S,
+ * затем в снимок выгружается текущее состояние. При восстановлении загружается снимок и повторяются все записи
+ * с номером не меньше S. Повтор записей идемпотентен, поэтому изменения, попавшие и в снимок, и в журнал,
+ * применяются корректно. Время восстановления зависит от хвоста журнала, а не от всей истории
+ *
+ * @param <E> тип записи журнала
+ * @param <R> тип записи снимка
+ */
+@Slf4j
+class Journal<E, R> implements Closeable {
+	private static final String LOG_SUFFIX = ".log";
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final char SEQ_SEPARATOR = '\t';
+	private static final int SNAPSHOT_HEADER_PROBE = 16;
+
+	private final Path directory;
+	private final String name;
+	private final ObjectMapper objectMapper;
+	private final Class<E> entryType;
+	private final List<SnapshotFormat<R>> snapshotFormats;
+
+	private final ReentrantLock appendLock = new ReentrantLock();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	/** Записи, которые не удалось сбросить на диск: пишутся первыми при следующем сбросе */
+	private byte[] unflushed = new byte[0];
+	/** Размер сегмента после последнего успешного сброса */
+	private long segmentSize;
+	private long nextSeq = 1;
+	private volatile long entriesSinceSnapshot;
+	private volatile long durableSeq;
+	private FileChannel segment;
+	private boolean snapshotFormatOutdated;
+
+
+	/**
+	 * @param snapshotFormats поддерживаемые форматы снимков; первый используется для записи,
+	 *                        формат существующего снимка при чтении определяется по его заголовку
+	 */
+	Journal(Path directory, String name, ObjectMapper objectMapper, Class<E> entryType,
+			List<SnapshotFormat<R>> snapshotFormats) {
+		this.directory = directory;
+		this.name = name;
+		this.objectMapper = objectMapper;
+		this.entryType = entryType;
+		this.snapshotFormats = snapshotFormats;
+	}
+
+	/**
+	 * Восстановить состояние: загрузить снимок и повторить хвост журнала, затем открыть журнал для записи
+	 *
+	 * @param restoreRecord восстановление записи снимка
+	 * @param replayEntry повтор записи журнала
+	 */
+	void recover(Consumer<R> restoreRecord, Consumer<E> replayEntry) {
+		try {
+			Files.createDirectories(directory);
+			long snapshotSeq = loadSnapshot(restoreRecord);
+			long lastSeq = snapshotSeq - 1;
+			long replayed = 0;
+			for (Path segmentPath : segments()) {
+				try (BufferedReader reader = Files.newBufferedReader(segmentPath, StandardCharsets.UTF_8)) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						int separator = line.indexOf(SEQ_SEPARATOR);
+						if (separator < 0) {
+							log.warn("Журнал {}: пропущена поврежденная строка в {}", name, segmentPath.getFileName());
+							break;
+						}
+						long seq = Long.parseLong(line, 0, separator, 10);
+						if (seq < snapshotSeq) {
+							continue;
+						}
+						E entry;
+						try {
+							entry = objectMapper.readValue(line.substring(separator + 1), entryType);
+						} catch (IOException e) {
+							log.warn("Журнал {}: недописанная запись {} в {}, повтор остановлен", name, seq,
+									segmentPath.getFileName());
+							break;
+						}
+						replayEntry.accept(entry);
+						lastSeq = Math.max(lastSeq, seq);
+						replayed++;
+					}
+				}
+			}
+			nextSeq = lastSeq + 1;
+			durableSeq = lastSeq;
+			entriesSinceSnapshot = replayed;
+			segment = openSegment(nextSeq);
+			segmentSize = segment.size();
+			log.info("Журнал {}: восстановлен снимок с записи {}, повторено записей журнала: {}", name, snapshotSeq,
+					replayed);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Не удалось восстановить журнал " + name, e);
+		}
+	}
+
+	/**
+	 * Добавить запись в буфер журнала. Вызывается под блокировкой изменяемого объекта,
+	 * чтобы порядок записей совпадал с порядком изменений в памяти
+	 *
+	 * @param entry запись журнала
+	 * @return номер записи, который нужно передать в {@link #sync(long)}
+	 */
+	long append(E entry) {
+		byte[] json;
+		try {
+			json = objectMapper.writeValueAsBytes(entry);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Не удалось сериализовать запись журнала " + name, e);
+		}
+		appendLock.lock();
+		try {
+			long seq = nextSeq++;
+			byte[] prefix = (Long.toString(seq) + SEQ_SEPARATOR).getBytes(StandardCharsets.US_ASCII);
+			pending.write(prefix, 0, prefix.length);
+			pending.write(json, 0, json.length);
+			pending.write('\n');
+			entriesSinceSnapshot++;
+			return seq;
+		} finally {
+			appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Дождаться записи на диск всех изменений до указанного номера включительно (групповой коммит)
+	 *
+	 * @param seq номер записи
+	 */
+	void sync(long seq) {
+		if (durableSeq >= seq) {
+			return;
+		}
+		flushLock.lock();
+		try {
+			if (durableSeq < seq) {
+				flushPending();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Не удалось записать журнал " + name, e);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Проверить, записан ли загруженный при восстановлении снимок не в том формате, который используется для записи
+	 *
+	 * @return true, если снимок нужно переписать в текущем формате
+	 */
+	boolean snapshotFormatOutdated() {
+		return snapshotFormatOutdated;
+	}
+
+	/**
+	 * Количество записей журнала после последнего снимка
+	 *
+	 * @return количество записей
+	 */
+	long entriesSinceSnapshot() {
+		return entriesSinceSnapshot;
+	}
+
+	/**
+	 * Записать снимок состояния и удалить сегменты журнала, которые им покрыты
+	 *
+	 * @param records источник записей снимка, поток закрывается после записи
+	 */
+	void snapshot(Supplier<Stream<R>> records) {
+		long snapshotSeq;
+		flushLock.lock();
+		appendLock.lock();
+		try {
+			flushPending();
+			snapshotSeq = nextSeq;
+			entriesSinceSnapshot = 0;
+			segment.close();
+			segment = openSegment(snapshotSeq);
+			segmentSize = segment.size();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Не удалось переключить сегмент журнала " + name, e);
+		} finally {
+			appendLock.unlock();
+			flushLock.unlock();
+		}
+		try {
+			Path temp = directory.resolve(name + SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+			try (Stream<R> stream = records.get()) {
+				snapshotFormats.get(0).write(temp, snapshotSeq, stream);
+			}
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+			Files.move(temp, directory.resolve(name + SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			for (Path segmentPath : segments()) {
+				if (segmentStart(segmentPath) < snapshotSeq) {
+					Files.deleteIfExists(segmentPath);
+				}
+			}
+			snapshotFormatOutdated = false;
+			log.info("Журнал {}: записан снимок с записи {}", name, snapshotSeq);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Не удалось записать снимок " + name, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushLock.lock();
+		try {
+			if (segment != null) {
+				flushPending();
+				segment.close();
+				segment = null;
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Сбросить накопленные записи на диск. Вызывается под flushLock.
+	 * Если запись или force не удались, пакет сохраняется и пишется первым при следующем сбросе,
+	 * а недописанный хвост сегмента обрезается, поэтому номер надежной записи не обгоняет файл
+	 */
+	private void flushPending() throws IOException {
+		byte[] batch;
+		long lastSeq;
+		appendLock.lock();
+		try {
+			batch = pending.toByteArray();
+			pending.reset();
+			lastSeq = nextSeq - 1;
+		} finally {
+			appendLock.unlock();
+		}
+		boolean retry = unflushed.length > 0;
+		if (retry) {
+			byte[] merged = Arrays.copyOf(unflushed, unflushed.length + batch.length);
+			System.arraycopy(batch, 0, merged, unflushed.length, batch.length);
+			batch = merged;
+		}
+		unflushed = batch;
+		if (retry) {
+			segment.truncate(segmentSize);
+		}
+		if (batch.length > 0) {
+			ByteBuffer buffer = ByteBuffer.wrap(batch);
+			while (buffer.hasRemaining()) {
+				segment.write(buffer);
+			}
+			segment.force(false);
+			segmentSize += batch.length;
+		}
+		unflushed = new byte[0];
+		durableSeq = lastSeq;
+	}
+
+	private long loadSnapshot(Consumer<R> restoreRecord) throws IOException {
+		Path snapshotPath = directory.resolve(name + SNAPSHOT_SUFFIX);
+		if (!Files.exists(snapshotPath)) {
+			return 1;
+		}
+		byte[] header;
+		try (InputStream in = Files.newInputStream(snapshotPath)) {
+			header = in.readNBytes(SNAPSHOT_HEADER_PROBE);
+		}
+		for (SnapshotFormat<R> format : snapshotFormats) {
+			if (format.accepts(header)) {
+				snapshotFormatOutdated = format != snapshotFormats.get(0);
+				return format.read(snapshotPath, restoreRecord);
+			}
+		}
+		throw new IOException("Неизвестный формат снимка " + snapshotPath);
+	}
+
+	FileChannel openSegment(long startSeq) throws IOException {
+		return FileChannel.open(directory.resolve(name + "-" + startSeq + LOG_SUFFIX), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private List<Path> segments() throws IOException {
+		List<Path> result = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(path -> {
+				String fileName = path.getFileName().toString();
+				return fileName.startsWith(name + "-") && fileName.endsWith(LOG_SUFFIX);
+			}).forEach(result::add);
+		}
+		result.sort((first, second) -> Long.compare(segmentStart(first), segmentStart(second)));
+		return result;
+	}
+
+	private long segmentStart(Path segmentPath) {
+		String fileName = segmentPath.getFileName().toString();
+		return Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - LOG_SUFFIX.length()));
+	}
+}
@@ -0,0 +1,359 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище фильмов в памяти с журналом изменений на диске.
+ * Чтение обслуживается из памяти, каждое изменение перед ответом записывается в журнал
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "journal")
+public class JournaledFilmStorage implements FilmStorage {
+	private static final String BINARY_FORMAT = "binary";
+	private static final String JOURNAL_NAME = "films";
+
+	private final InMemoryFilmStorage films = new InMemoryFilmStorage();
+	private final StripedLocks locks = new StripedLocks();
+	private final Journal<FilmJournalEntry, Film> journal;
+	private final long snapshotEvery;
+	private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(
+			Thread.ofPlatform().name("films-snapshot").daemon().factory());
+	private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+
+	@Autowired
+	public JournaledFilmStorage(ObjectMapper objectMapper,
+								@Value("${filmorate.journal.dir}") Path directory,
+								@Value("${filmorate.journal.snapshot-every}") long snapshotEvery,
+								@Value("${filmorate.journal.snapshot-format}") String snapshotFormat) {
+		SnapshotFormat<Film> json = new JsonSnapshotFormat<>(objectMapper, Film.class);
+		SnapshotFormat<Film> binary = BinarySnapshotFormat.films();
+		List<SnapshotFormat<Film>> formats = BINARY_FORMAT.equals(snapshotFormat)
+				? List.of(binary, json)
+				: List.of(json, binary);
+		this.journal = new Journal<>(directory, JOURNAL_NAME, objectMapper, FilmJournalEntry.class, formats);
+		this.snapshotEvery = snapshotEvery;
+	}
+
+	@PostConstruct
+	public void recover() {
+		journal.recover(films::restoreFilm, this::replay);
+		if (journal.snapshotFormatOutdated()) {
+			journal.snapshot(films::streamFilms);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException, InterruptedException {
+		snapshotExecutor.shutdown();
+		snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		journal.snapshot(films::streamFilms);
+		journal.close();
+	}
+
+
+	@Override
+	public Film addFilm(Film film) {
+		film.setId(films.reserveId());
+		ReentrantLock lock = locks.lockFor(film.getId());
+		long seq;
+		lock.lock();
+		try {
+			films.restoreFilm(film);
+			seq = journal.append(FilmJournalEntry.save(film));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+		return film;
+	}
+
+
+	/**
+	 * Фильмы пакета записываются в журнал по одному, а сбрасываются на диск один раз в конце
+	 */
+	@Override
+	public List<Film> addFilms(List<Film> films) {
+		long seq = -1;
+		for (Film film : films) {
+			film.setId(this.films.reserveId());
+			ReentrantLock lock = locks.lockFor(film.getId());
+			lock.lock();
+			try {
+				this.films.restoreFilm(film);
+				seq = journal.append(FilmJournalEntry.save(film));
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+		return films;
+	}
+
+
+	@Override
+	public Film updateFilm(Film film) {
+		ReentrantLock lock = locks.lockFor(film.getId());
+		long seq;
+		lock.lock();
+		try {
+			films.updateFilm(film);
+			seq = journal.append(FilmJournalEntry.save(film));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+		return film;
+	}
+
+
+	@Override
+	public void deleteFilm(Integer id) {
+		ReentrantLock lock = locks.lockFor(id);
+		long seq;
+		lock.lock();
+		try {
+			films.deleteFilm(id);
+			seq = journal.append(FilmJournalEntry.delete(id));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+	}
+
+
+	@Override
+	public Film getFilmById(Integer id) {
+		return films.getFilmById(id);
+	}
+
+
+	@Override
+	public List<Film> getAllFilms() {
+		return films.getAllFilms();
+	}
+
+
+	@Override
+	public Stream<Film> streamFilms() {
+		return films.streamFilms();
+	}
+
+
+	@Override
+	public List<Film> getFilmsPage(Integer afterId, int limit) {
+		return films.getFilmsPage(afterId, limit);
+	}
+
+
+	@Override
+	public List<Film> getFilmsByIds(Collection<Integer> ids) {
+		return films.getFilmsByIds(ids);
+	}
+
+
+	@Override
+	public void addLike(Integer filmId, Integer userId) {
+		ReentrantLock lock = locks.lockFor(filmId);
+		long seq;
+		lock.lock();
+		try {
+			long time = films.currentTimeMillis();
+			films.addLike(filmId, userId, time);
+			seq = journal.append(FilmJournalEntry.addLike(filmId, userId, time));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+	}
+
+
+	/**
+	 * Лайки пакета записываются в журнал по одному, а сбрасываются на диск один раз в конце
+	 */
+	@Override
+	public void addLikes(List<Like> likes) {
+		long seq = -1;
+		long time = films.currentTimeMillis();
+		for (Like like : likes) {
+			ReentrantLock lock = locks.lockFor(like.filmId());
+			lock.lock();
+			try {
+				films.addLike(like.filmId(), like.userId(), time);
+				seq = journal.append(FilmJournalEntry.addLike(like.filmId(), like.userId(), time));
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+	}
+
+
+	@Override
+	public void removeLike(Integer filmId, Integer userId) {
+		ReentrantLock lock = locks.lockFor(filmId);
+		long seq;
+		lock.lock();
+		try {
+			films.removeLike(filmId, userId);
+			seq = journal.append(FilmJournalEntry.removeLike(filmId, userId));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+	}
+
+
+	/**
+	 * Операции каждого фильма применяются и записываются в журнал под блокировкой этого фильма,
+	 * на диск пакет сбрасывается один раз в конце
+	 */
+	@Override
+	public void applyLikes(List<LikeOperation> operations) {
+		Map<Integer, List<LikeOperation>> byFilm = new LinkedHashMap<>();
+		for (LikeOperation operation : operations) {
+			byFilm.computeIfAbsent(operation.filmId(), id -> new ArrayList<>()).add(operation);
+		}
+		long seq = -1;
+		long time = films.currentTimeMillis();
+		for (Map.Entry<Integer, List<LikeOperation>> entry : byFilm.entrySet()) {
+			ReentrantLock lock = locks.lockFor(entry.getKey());
+			lock.lock();
+			try {
+				films.applyLikes(entry.getValue(), time);
+				for (LikeOperation operation : entry.getValue()) {
+					seq = journal.append(operation.op() == LikeOperation.Operation.LIKE
+							? FilmJournalEntry.addLike(operation.filmId(), operation.userId(), time)
+							: FilmJournalEntry.removeLike(operation.filmId(), operation.userId()));
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+	}
+
+
+	@Override
+	public List<Film> getLikedFilms(Integer userId) {
+		return films.getLikedFilms(userId);
+	}
+
+
+	/**
+	 * Каждое снятие лайка записывается в журнал, на диск они сбрасываются один раз в конце
+	 */
+	@Override
+	public void removeUserLikes(Integer userId) {
+		long seq = -1;
+		for (Film film : films.getLikedFilms(userId)) {
+			ReentrantLock lock = locks.lockFor(film.getId());
+			lock.lock();
+			try {
+				films.removeLike(film.getId(), userId);
+				seq = journal.append(FilmJournalEntry.removeLike(film.getId(), userId));
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count) {
+		return films.getPopularFilms(count);
+	}
+
+
+	@Override
+	public List<Film> getPopularFilms(int count, Integer year, Integer minDuration, Integer maxDuration) {
+		return films.getPopularFilms(count, year, minDuration, maxDuration);
+	}
+
+
+	@Override
+	public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+		return films.getTrendingFilms(window, count);
+	}
+
+
+	@Override
+	public List<Film> getRecommendedFilms(Integer userId, int limit) {
+		return films.getRecommendedFilms(userId, limit);
+	}
+
+
+	@Override
+	public long getFilmsCount() {
+		return films.getFilmsCount();
+	}
+
+
+	@Override
+	public long getLikesCount() {
+		return films.getLikesCount();
+	}
+
+
+	private void replay(FilmJournalEntry entry) {
+		switch (entry.operation()) {
+			case SAVE -> films.restoreFilm(entry.film());
+			case DELETE -> films.deleteFilm(entry.filmId());
+			case ADD_LIKE -> films.addLike(entry.filmId(), entry.userId(), entry.time());
+			case REMOVE_LIKE -> films.removeLike(entry.filmId(), entry.userId());
+		}
+	}
+
+	/**
+	 * Дождаться записи изменения на диск и при необходимости запустить фоновый снимок
+	 */
+	private void commit(long seq) {
+		journal.sync(seq);
+		if (journal.entriesSinceSnapshot() >= snapshotEvery && snapshotRunning.compareAndSet(false, true)) {
+			snapshotExecutor.execute(() -> {
+				try {
+					journal.snapshot(films::streamFilms);
+				} catch (RuntimeException e) {
+					log.error("Не удалось записать снимок фильмов", e);
+				} finally {
+					snapshotRunning.set(false);
+				}
+			});
+		}
+	}
+}
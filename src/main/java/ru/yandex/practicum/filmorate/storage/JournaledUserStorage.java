@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей в памяти с журналом изменений на диске.
+ * Чтение обслуживается из памяти, каждое изменение перед ответом записывается в журнал
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "journal")
+public class JournaledUserStorage implements UserStorage {
+	private static final String BINARY_FORMAT = "binary";
+	private static final String JOURNAL_NAME = "users";
+
+	private final InMemoryUserStorage users = new InMemoryUserStorage();
+	private final StripedLocks locks = new StripedLocks();
+	private final Journal<UserJournalEntry, User> journal;
+	private final long snapshotEvery;
+	private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(
+			Thread.ofPlatform().name("users-snapshot").daemon().factory());
+	private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+
+	@Autowired
+	public JournaledUserStorage(ObjectMapper objectMapper,
+								@Value("${filmorate.journal.dir}") Path directory,
+								@Value("${filmorate.journal.snapshot-every}") long snapshotEvery,
+								@Value("${filmorate.journal.snapshot-format}") String snapshotFormat) {
+		SnapshotFormat<User> json = new JsonSnapshotFormat<>(objectMapper, User.class);
+		SnapshotFormat<User> binary = BinarySnapshotFormat.users();
+		List<SnapshotFormat<User>> formats = BINARY_FORMAT.equals(snapshotFormat)
+				? List.of(binary, json)
+				: List.of(json, binary);
+		this.journal = new Journal<>(directory, JOURNAL_NAME, objectMapper, UserJournalEntry.class, formats);
+		this.snapshotEvery = snapshotEvery;
+	}
+
+	@PostConstruct
+	public void recover() {
+		journal.recover(users::restoreUser, this::replay);
+		if (journal.snapshotFormatOutdated()) {
+			journal.snapshot(users::streamUsers);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException, InterruptedException {
+		snapshotExecutor.shutdown();
+		snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		journal.snapshot(users::streamUsers);
+		journal.close();
+	}
+
+
+	@Override
+	public User addUser(User user) {
+		user.setId(users.reserveId());
+		ReentrantLock lock = locks.lockFor(user.getId());
+		long seq;
+		lock.lock();
+		try {
+			users.restoreUser(user);
+			seq = journal.append(UserJournalEntry.save(user));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+		return user;
+	}
+
+
+	/**
+	 * Пользователи пакета записываются в журнал по одному, а сбрасываются на диск один раз в конце
+	 */
+	@Override
+	public List<User> addUsers(List<User> users) {
+		long seq = -1;
+		for (User user : users) {
+			user.setId(this.users.reserveId());
+			ReentrantLock lock = locks.lockFor(user.getId());
+			lock.lock();
+			try {
+				this.users.restoreUser(user);
+				seq = journal.append(UserJournalEntry.save(user));
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+		return users;
+	}
+
+
+	@Override
+	public User updateUser(User user) {
+		ReentrantLock lock = locks.lockFor(user.getId());
+		long seq;
+		lock.lock();
+		try {
+			users.updateUser(user);
+			seq = journal.append(UserJournalEntry.save(user));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+		return user;
+	}
+
+
+	@Override
+	public void deleteUser(Integer id) {
+		ReentrantLock lock = locks.lockFor(id);
+		long seq;
+		lock.lock();
+		try {
+			users.deleteUser(id);
+			seq = journal.append(UserJournalEntry.delete(id));
+		} finally {
+			lock.unlock();
+		}
+		commit(seq);
+	}
+
+
+	@Override
+	public User getUserById(Integer id) {
+		return users.getUserById(id);
+	}
+
+
+	@Override
+	public List<User> getAllUsers() {
+		return users.getAllUsers();
+	}
+
+
+	@Override
+	public Stream<User> streamUsers() {
+		return users.streamUsers();
+	}
+
+
+	@Override
+	public List<User> getUsersPage(Integer afterId, int limit) {
+		return users.getUsersPage(afterId, limit);
+	}
+
+
+	@Override
+	public List<User> getUsersByIds(Collection<Integer> ids) {
+		return users.getUsersByIds(ids);
+	}
+
+
+	@Override
+	public void addFriend(Integer userId, Integer friendId) {
+		long seq;
+		locks.lockBoth(userId, friendId);
+		try {
+			users.addFriend(userId, friendId);
+			seq = journal.append(UserJournalEntry.addFriend(userId, friendId));
+		} finally {
+			locks.unlockBoth(userId, friendId);
+		}
+		commit(seq);
+	}
+
+
+	/**
+	 * Дружбы пакета записываются в журнал по одной, а сбрасываются на диск один раз в конце
+	 */
+	@Override
+	public void addFriends(List<Friendship> friendships) {
+		long seq = -1;
+		for (Friendship friendship : friendships) {
+			locks.lockBoth(friendship.userId(), friendship.friendId());
+			try {
+				users.addFriend(friendship.userId(), friendship.friendId());
+				seq = journal.append(UserJournalEntry.addFriend(friendship.userId(), friendship.friendId()));
+			} finally {
+				locks.unlockBoth(friendship.userId(), friendship.friendId());
+			}
+		}
+		if (seq >= 0) {
+			commit(seq);
+		}
+	}
+
+
+	@Override
+	public void removeFriend(Integer userId, Integer friendId) {
+		long seq;
+		locks.lockBoth(userId, friendId);
+		try {
+			users.removeFriend(userId, friendId);
+			seq = journal.append(UserJournalEntry.removeFriend(userId, friendId));
+		} finally {
+			locks.unlockBoth(userId, friendId);
+		}
+		commit(seq);
+	}
+
+
+	@Override
+	public List<User> getCommonFriends(Integer userId, Integer otherId) {
+		return users.getCommonFriends(userId, otherId);
+	}
+
+
+	@Override
+	public List<User> getFriendRecommendations(Integer userId, int limit) {
+		return users.getFriendRecommendations(userId, limit);
+	}
+
+
+	@Override
+	public long getUsersCount() {
+		return users.getUsersCount();
+	}
+
+
+	@Override
+	public long getFriendshipsCount() {
+		return users.getFriendshipsCount();
+	}
+
+
+	private void replay(UserJournalEntry entry) {
+		switch (entry.operation()) {
+			case SAVE -> users.restoreUser(entry.user());
+			case DELETE -> users.deleteUser(entry.userId());
+			case ADD_FRIEND -> users.addFriend(entry.userId(), entry.friendId());
+			case REMOVE_FRIEND -> users.removeFriend(entry.userId(), entry.friendId());
+		}
+	}
+
+	/**
+	 * Дождаться записи изменения на диск и при необходимости запустить фоновый снимок
+	 */
+	private void commit(long seq) {
+		journal.sync(seq);
+		if (journal.entriesSinceSnapshot() >= snapshotEvery && snapshotRunning.compareAndSet(false, true)) {
+			snapshotExecutor.execute(() -> {
+				try {
+					journal.snapshot(users::streamUsers);
+				} catch (RuntimeException e) {
+					log.error("Не удалось записать снимок пользователей", e);
+				} finally {
+					snapshotRunning.set(false);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Текстовый снимок: номер записи журнала в первой строке, затем по одной JSON-записи на строку
+ *
+ * @param <R> тип записи снимка
+ */
+class JsonSnapshotFormat<R> implements SnapshotFormat<R> {
+	private final ObjectMapper objectMapper;
+	private final Class<R> recordType;
+
+
+	JsonSnapshotFormat(ObjectMapper objectMapper, Class<R> recordType) {
+		this.objectMapper = objectMapper;
+		this.recordType = recordType;
+	}
+
+	@Override
+	public boolean accepts(byte[] header) {
+		return header.length > 0 && Character.isDigit(header[0]);
+	}
+
+	@Override
+	public void write(Path path, long seq, Stream<R> records) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write(Long.toString(seq));
+			writer.newLine();
+			Iterator<R> iterator = records.iterator();
+			while (iterator.hasNext()) {
+				writer.write(objectMapper.writeValueAsString(iterator.next()));
+				writer.newLine();
+			}
+		}
+	}
+
+	@Override
+	public long read(Path path, Consumer<R> restore) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			long seq = Long.parseLong(reader.readLine());
+			String line;
+			while ((line = reader.readLine()) != null) {
+				restore.accept(objectMapper.readValue(line, recordType));
+			}
+			return seq;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс популярности фильмов, упорядоченный по (количество лайков по убыванию, id по возрастанию).
+ * Обновляется на месте при добавлении и удалении лайков, поэтому выборка первых N фильмов
+ * стоит O(N) и не зависит от размера каталога.
+ * Изменения по одному фильму должны выполняться под блокировкой этого фильма, чтение блокировок не требует
+ */
+class PopularityIndex {
+	private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+			.thenComparingInt(Entry::filmId);
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+
+	/**
+	 * Добавить фильм в индекс
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param likes количество лайков фильма
+	 */
+	void add(int filmId, int likes) {
+		entries.add(new Entry(likes, filmId));
+	}
+
+	/**
+	 * Удалить фильм из индекса
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param likes количество лайков фильма, с которым он был добавлен в индекс
+	 */
+	void remove(int filmId, int likes) {
+		entries.remove(new Entry(likes, filmId));
+	}
+
+	/**
+	 * Переместить фильм в индексе после изменения количества лайков
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param oldLikes прежнее количество лайков
+	 * @param newLikes новое количество лайков
+	 */
+	void update(int filmId, int oldLikes, int newLikes) {
+		if (oldLikes == newLikes) {
+			return;
+		}
+		// сначала добавляем новую запись, чтобы параллельное чтение не потеряло фильм
+		add(filmId, newLikes);
+		remove(filmId, oldLikes);
+	}
+
+	/**
+	 * Идентификаторы самых популярных фильмов
+	 *
+	 * @param count максимальное количество фильмов
+	 * @return идентификаторы фильмов в порядке убывания популярности
+	 */
+	List<Integer> top(int count) {
+		List<Integer> result = new ArrayList<>(Math.min(count, DEFAULT_CAPACITY));
+		Set<Integer> seen = new HashSet<>();
+		Iterator<Entry> iterator = entries.iterator();
+		while (result.size() < count && iterator.hasNext()) {
+			int filmId = iterator.next().filmId();
+			if (seen.add(filmId)) {
+				result.add(filmId);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Идентификаторы самых популярных фильмов из нескольких индексов, например вторичных индексов
+	 * по значениям атрибута из диапазона. Индексы сливаются по порядку популярности, поэтому
+	 * просматриваются только фильмы, попадающие в результат или отсеянные фильтром
+	 *
+	 * @param indexes индексы для слияния
+	 * @param count максимальное количество фильмов
+	 * @param filter условие, которому должны удовлетворять фильмы
+	 * @return идентификаторы фильмов в порядке убывания популярности
+	 */
+	static List<Integer> top(Collection<PopularityIndex> indexes, int count, IntPredicate filter) {
+		PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, indexes.size()),
+				Comparator.comparing(Cursor::current, ORDER));
+		for (PopularityIndex index : indexes) {
+			Iterator<Entry> iterator = index.entries.iterator();
+			if (iterator.hasNext()) {
+				cursors.add(new Cursor(iterator, iterator.next()));
+			}
+		}
+		List<Integer> result = new ArrayList<>(Math.min(count, DEFAULT_CAPACITY));
+		Set<Integer> seen = new HashSet<>();
+		while (result.size() < count && !cursors.isEmpty()) {
+			Cursor cursor = cursors.poll();
+			int filmId = cursor.current.filmId();
+			if (seen.add(filmId) && filter.test(filmId)) {
+				result.add(filmId);
+			}
+			if (cursor.iterator.hasNext()) {
+				cursor.current = cursor.iterator.next();
+				cursors.add(cursor);
+			}
+		}
+		return result;
+	}
+
+	private record Entry(int likes, int filmId) {
+	}
+
+	private static final class Cursor {
+		private final Iterator<Entry> iterator;
+		private Entry current;
+
+		Cursor(Iterator<Entry> iterator, Entry current) {
+			this.iterator = iterator;
+			this.current = current;
+		}
+
+		Entry current() {
+			return current;
+		}
+	}
+}
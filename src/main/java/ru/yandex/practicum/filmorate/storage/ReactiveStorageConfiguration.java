@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Планировщик для вызовов хранилищ из WebFlux-контроллеров.
+ * Все хранилища блокируют поток: в памяти — на блокировках, журнал — на записи на диск,
+ * база данных — на запросах, поэтому вызовы никогда не выполняются в потоке цикла событий
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStorageConfiguration {
+
+	@Bean
+	public Scheduler storageScheduler() {
+		return Schedulers.boundedElastic();
+	}
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Формат файла снимка состояния хранилища
+ *
+ * @param <R> тип записи снимка
+ */
+interface SnapshotFormat<R> {
+
+	/**
+	 * Проверить, записан ли файл в этом формате
+	 *
+	 * @param header первые байты файла
+	 * @return true, если формат распознан
+	 */
+	boolean accepts(byte[] header);
+
+
+	/**
+	 * Записать снимок
+	 *
+	 * @param path файл снимка
+	 * @param seq номер первой записи журнала, не вошедшей в снимок гарантированно
+	 * @param records записи снимка
+	 */
+	void write(Path path, long seq, Stream<R> records) throws IOException;
+
+
+	/**
+	 * Прочитать снимок
+	 *
+	 * @param path файл снимка
+	 * @param restore восстановление записи
+	 * @return номер записи журнала, с которой нужно продолжить повтор
+	 */
+	long read(Path path, Consumer<R> restore) throws IOException;
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Подсчет совместных появлений идентификаторов по отсортированным спискам.
+ * Списки собираются в компактное представление CSR (общий массив элементов и смещения строк)
+ * и сливаются в один отсортированный массив, в котором количество появлений id равно длине его серии.
+ * Для больших списков слияние делится между потоками fork-join, лучшие id отбираются
+ * ограниченной кучей, поэтому память на отбор не зависит от количества различных id
+ */
+final class SortedRuns {
+	/** Начиная с такого количества элементов в части CSR ее слияние делится между потоками */
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	private SortedRuns() {
+	}
+
+	/**
+	 * Слить отсортированные списки в один отсортированный массив
+	 *
+	 * @param rows отсортированные списки идентификаторов
+	 * @return все элементы списков по возрастанию, с повторами
+	 */
+	static int[] merge(int[][] rows) {
+		if (rows.length == 0) {
+			return new int[0];
+		}
+		int[] offsets = new int[rows.length + 1];
+		for (int i = 0; i < rows.length; i++) {
+			offsets[i + 1] = offsets[i] + rows[i].length;
+		}
+		int[] elements = new int[offsets[rows.length]];
+		for (int i = 0; i < rows.length; i++) {
+			System.arraycopy(rows[i], 0, elements, offsets[i], rows[i].length);
+		}
+		MergeRows task = new MergeRows(elements, offsets, 0, rows.length);
+		return elements.length < PARALLEL_THRESHOLD ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/**
+	 * Идентификаторы с самыми длинными сериями в слитом массиве, при равенстве — с меньшим id
+	 *
+	 * @param merged отсортированный массив из {@link #merge(int[][])}
+	 * @param excluded id, которые не нужно возвращать
+	 * @param limit максимальное количество id
+	 * @return идентификаторы, начиная с самой длинной серии
+	 */
+	static int[] top(int[] merged, IntPredicate excluded, int limit) {
+		if (limit <= 0) {
+			return new int[0];
+		}
+		TopCandidates top = new TopCandidates(limit);
+		int i = 0;
+		while (i < merged.length) {
+			int candidate = merged[i];
+			int end = i + 1;
+			while (end < merged.length && merged[end] == candidate) {
+				end++;
+			}
+			if (!excluded.test(candidate)) {
+				top.offer(candidate, end - i);
+			}
+			i = end;
+		}
+		return top.toArray();
+	}
+
+	/**
+	 * Слияние отсортированных строк CSR с номерами [from, to) в один отсортированный массив
+	 */
+	private static final class MergeRows extends RecursiveTask<int[]> {
+		private final int[] elements;
+		private final int[] offsets;
+		private final int from;
+		private final int to;
+
+		MergeRows(int[] elements, int[] offsets, int from, int to) {
+			this.elements = elements;
+			this.offsets = offsets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from == 1 || offsets[to] - offsets[from] < PARALLEL_THRESHOLD) {
+				// строки уже отсортированы: сортировка распознает готовые серии и только сливает их
+				int[] part = Arrays.copyOfRange(elements, offsets[from], offsets[to]);
+				Arrays.sort(part);
+				return part;
+			}
+			int middle = (from + to) >>> 1;
+			MergeRows left = new MergeRows(elements, offsets, from, middle);
+			left.fork();
+			int[] right = new MergeRows(elements, offsets, middle, to).compute();
+			return merge(left.join(), right);
+		}
+
+		private static int[] merge(int[] first, int[] second) {
+			int[] result = new int[first.length + second.length];
+			int i = 0;
+			int j = 0;
+			int k = 0;
+			while (i < first.length && j < second.length) {
+				result[k++] = first[i] <= second[j] ? first[i++] : second[j++];
+			}
+			System.arraycopy(first, i, result, k, first.length - i);
+			System.arraycopy(second, j, result, k + first.length - i, second.length - j);
+			return result;
+		}
+	}
+
+	/**
+	 * Ограниченная куча лучших кандидатов на примитивах. Кандидат кодируется одним long:
+	 * старшие 32 бита — длина серии, младшие — id в обратном порядке,
+	 * так что больший ключ означает лучшего кандидата
+	 */
+	private static final class TopCandidates {
+		private final long[] heap;
+		private int size;
+
+		TopCandidates(int limit) {
+			heap = new long[limit];
+		}
+
+		void offer(int candidate, int count) {
+			long key = (long) count << Integer.SIZE | (Integer.MAX_VALUE - candidate);
+			if (size < heap.length) {
+				heap[size] = key;
+				siftUp(size++);
+			} else if (key > heap[0]) {
+				heap[0] = key;
+				siftDown(0);
+			}
+		}
+
+		int[] toArray() {
+			long[] keys = Arrays.copyOf(heap, size);
+			Arrays.sort(keys);
+			int[] ids = new int[size];
+			for (int i = 0; i < size; i++) {
+				ids[i] = Integer.MAX_VALUE - (int) keys[size - 1 - i];
+			}
+			return ids;
+		}
+
+		private void siftUp(int index) {
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (heap[parent] <= heap[index]) {
+					return;
+				}
+				swap(parent, index);
+				index = parent;
+			}
+		}
+
+		private void siftDown(int index) {
+			while (true) {
+				int smallest = index;
+				int left = 2 * index + 1;
+				int right = left + 1;
+				if (left < size && heap[left] < heap[smallest]) {
+					smallest = left;
+				}
+				if (right < size && heap[right] < heap[smallest]) {
+					smallest = right;
+				}
+				if (smallest == index) {
+					return;
+				}
+				swap(index, smallest);
+				index = smallest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			long tmp = heap[i];
+			heap[i] = heap[j];
+			heap[j] = tmp;
+		}
+	}
+}
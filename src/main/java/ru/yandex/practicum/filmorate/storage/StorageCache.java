@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ограниченный кэш объектов хранилища по id с вытеснением давно не использованных записей (LRU)
+ * и по сроку жизни.
+ * <p>
+ * Кэш разбит на сегменты со своей блокировкой, чтобы чтения разных id не конкурировали за одну блокировку.
+ * Чтобы загрузка из хранилища, начатая до изменения, не положила в кэш устаревший объект, каждый сегмент
+ * хранит номер поколения: сброс записи увеличивает его, а загруженный объект кладется в кэш,
+ * только если поколение не изменилось с начала загрузки
+ *
+ * @param <V> тип объектов
+ */
+class StorageCache<V> {
+	private static final int SEGMENTS = 16;
+
+	private final Segment<V>[] segments;
+	private final long ttlNanos;
+	private final LongSupplier clock;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+
+	StorageCache(int maxSize, Duration ttl) {
+		this(maxSize, ttl, System::nanoTime);
+	}
+
+	@SuppressWarnings("unchecked")
+	StorageCache(int maxSize, Duration ttl, LongSupplier clock) {
+		this.ttlNanos = ttl.toNanos();
+		this.clock = clock;
+		int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<>(segmentSize, evictions);
+		}
+	}
+
+	/**
+	 * Объект из кэша или из хранилища, если его нет в кэше
+	 *
+	 * @param id идентификатор объекта
+	 * @param loader загрузка объекта из хранилища
+	 * @return объект или null, если его нет в хранилище
+	 */
+	V get(int id, IntFunction<V> loader) {
+		V value = get(id);
+		if (value != null) {
+			return value;
+		}
+		long loadGeneration = generation(id);
+		value = loader.apply(id);
+		if (value != null) {
+			put(id, value, loadGeneration);
+		}
+		return value;
+	}
+
+	/**
+	 * Объекты из кэша; отсутствующие в кэше загружаются из хранилища одним запросом
+	 *
+	 * @param ids идентификаторы объектов
+	 * @param loader загрузка объектов из хранилища
+	 * @param idOf идентификатор объекта
+	 * @return найденные объекты в порядке ids
+	 */
+	List<V> getAll(Collection<Integer> ids, Function<List<Integer>, List<V>> loader, ToIntFunction<V> idOf) {
+		Map<Integer, V> found = new HashMap<>();
+		List<Integer> missing = new ArrayList<>();
+		Map<Integer, Long> generations = new HashMap<>();
+		for (Integer id : ids) {
+			V value = get(id);
+			if (value != null) {
+				found.put(id, value);
+			} else {
+				missing.add(id);
+				generations.put(id, generation(id));
+			}
+		}
+		if (!missing.isEmpty()) {
+			for (V value : loader.apply(missing)) {
+				int id = idOf.applyAsInt(value);
+				found.put(id, value);
+				put(id, value, generations.get(id));
+			}
+		}
+		List<V> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			V value = found.get(id);
+			if (value != null) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Объект из кэша
+	 *
+	 * @param id идентификатор объекта
+	 * @return объект или null, если его нет в кэше или срок жизни записи истек
+	 */
+	V get(int id) {
+		Segment<V> segment = segmentFor(id);
+		segment.lock.lock();
+		try {
+			Entry<V> entry = segment.entries.get(id);
+			if (entry != null && clock.getAsLong() - entry.loadedAt() > ttlNanos) {
+				segment.entries.remove(id);
+				evictions.increment();
+				entry = null;
+			}
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.value();
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Поколение сегмента, которое нужно запомнить перед загрузкой объекта из хранилища
+	 *
+	 * @param id идентификатор объекта
+	 * @return номер поколения для {@link #put(int, Object, long)}
+	 */
+	long generation(int id) {
+		Segment<V> segment = segmentFor(id);
+		segment.lock.lock();
+		try {
+			return segment.generation;
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Положить загруженный объект в кэш, если с начала загрузки записи сегмента не сбрасывались
+	 *
+	 * @param id идентификатор объекта
+	 * @param value объект
+	 * @param generation поколение, полученное до загрузки
+	 */
+	void put(int id, V value, long generation) {
+		Segment<V> segment = segmentFor(id);
+		segment.lock.lock();
+		try {
+			if (segment.generation == generation) {
+				segment.entries.put(id, new Entry<>(value, clock.getAsLong()));
+			}
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Сбросить запись после изменения объекта
+	 *
+	 * @param id идентификатор объекта
+	 */
+	void invalidate(int id) {
+		Segment<V> segment = segmentFor(id);
+		segment.lock.lock();
+		try {
+			segment.generation++;
+			segment.entries.remove(id);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	CacheStats stats() {
+		long size = 0;
+		for (Segment<V> segment : segments) {
+			segment.lock.lock();
+			try {
+				size += segment.entries.size();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return CacheStats.of(hits.sum(), misses.sum(), evictions.sum(), size);
+	}
+
+	private Segment<V> segmentFor(int id) {
+		int hash = id * 0x9E3779B9;
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	private record Entry<V>(V value, long loadedAt) {
+	}
+
+	private static final class Segment<V> {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Map<Integer, Entry<V>> entries;
+		private long generation;
+
+		Segment(int maxSize, LongAdder evictions) {
+			entries = new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+					if (size() > maxSize) {
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+	}
+}
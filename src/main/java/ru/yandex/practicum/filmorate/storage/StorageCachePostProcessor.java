@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Оборачивает выбранные хранилища фильмов и пользователей в кэш, если он включен.
+ * Хранилища не знают о кэше, поэтому его можно поставить перед любой реализацией
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class StorageCachePostProcessor implements BeanPostProcessor {
+	private final int maxSize;
+	private final Duration ttl;
+
+
+	public StorageCachePostProcessor(@Value("${filmorate.cache.max-size}") int maxSize,
+									 @Value("${filmorate.cache.ttl}") Duration ttl) {
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+	}
+
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (bean instanceof FilmStorage filmStorage && !(bean instanceof CachingFilmStorage)) {
+			log.info("Кэш фильмов включен: до {} записей, срок жизни {}", maxSize, ttl);
+			return new CachingFilmStorage(filmStorage, maxSize, ttl);
+		}
+		if (bean instanceof UserStorage userStorage && !(bean instanceof CachingUserStorage)) {
+			log.info("Кэш пользователей включен: до {} записей, срок жизни {}", maxSize, ttl);
+			return new CachingUserStorage(userStorage, maxSize, ttl);
+		}
+		return bean;
+	}
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Размер данных хранилищ для метрик: количество фильмов, пользователей, лайков и дружб.
+ * Значения читаются при каждом снятии метрик
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+	private final FilmStorage filmStorage;
+	private final UserStorage userStorage;
+
+
+	@Autowired
+	public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+		this.filmStorage = filmStorage;
+		this.userStorage = userStorage;
+	}
+
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.films", filmStorage, FilmStorage::getFilmsCount)
+				.description("Количество фильмов")
+				.register(registry);
+		Gauge.builder("filmorate.likes", filmStorage, FilmStorage::getLikesCount)
+				.description("Количество лайков у всех фильмов")
+				.register(registry);
+		Gauge.builder("filmorate.users", userStorage, UserStorage::getUsersCount)
+				.description("Количество пользователей")
+				.register(registry);
+		Gauge.builder("filmorate.friendships", userStorage, UserStorage::getFriendshipsCount)
+				.description("Количество пар друзей")
+				.register(registry);
+	}
+}
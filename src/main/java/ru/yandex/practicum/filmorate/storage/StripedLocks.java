@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, распределенных по идентификаторам объектов.
+ * Изменения разных объектов выполняются параллельно, изменения одного объекта — последовательно
+ */
+class StripedLocks {
+	private static final int DEFAULT_STRIPES = 64;
+
+	private final ReentrantLock[] locks;
+
+
+	StripedLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	StripedLocks(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Блокировка, отвечающая за объект с указанным идентификатором
+	 *
+	 * @param id идентификатор объекта
+	 * @return блокировка объекта
+	 */
+	ReentrantLock lockFor(int id) {
+		return locks[stripe(id)];
+	}
+
+	/**
+	 * Захватить блокировки двух объектов в порядке номеров полос, чтобы встречные захваты не приводили к взаимной блокировке
+	 *
+	 * @param firstId идентификатор первого объекта
+	 * @param secondId идентификатор второго объекта
+	 */
+	void lockBoth(int firstId, int secondId) {
+		int first = stripe(firstId);
+		int second = stripe(secondId);
+		locks[Math.min(first, second)].lock();
+		if (first != second) {
+			locks[Math.max(first, second)].lock();
+		}
+	}
+
+	/**
+	 * Освободить блокировки, захваченные {@link #lockBoth(int, int)}
+	 *
+	 * @param firstId идентификатор первого объекта
+	 * @param secondId идентификатор второго объекта
+	 */
+	void unlockBoth(int firstId, int secondId) {
+		int first = stripe(firstId);
+		int second = stripe(secondId);
+		if (first != second) {
+			locks[Math.max(first, second)].unlock();
+		}
+		locks[Math.min(first, second)].unlock();
+	}
+
+	private int stripe(int id) {
+		int hash = id * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (locks.length - 1);
+	}
+}
@@ -0,0 +1,292 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Индекс набирающих популярность фильмов: количество лайков за каждое окно {@link TrendingWindow}.
+ * Время разбито на корзины по 10 минут. У каждого фильма с недавними лайками хранится кольцо корзин
+ * за самое длинное окно с id пользователей, поставивших лайк в эту корзину, поэтому снятый лайк
+ * вычитается из той корзины, в которую попал.
+ * <p>
+ * Для каждого окна поддерживается свой {@link PopularityIndex}: лайк сдвигает фильм во всех окнах,
+ * а при смене корзины вычитаются только корзины, выпавшие из окна, и только у фильмов, у которых
+ * в них были лайки. Окно покрывает текущую неполную корзину и предыдущие, поэтому его длина точна
+ * до размера корзины.
+ * <p>
+ * Лайки выполняются под общей блокировкой на чтение и блокировкой фильма, смена корзины — под блокировкой
+ * на запись, поэтому видит согласованные корзины. Чтение рейтинга блокировок не требует
+ */
+class TrendingIndex {
+	private static final long BUCKET_MILLIS = Duration.ofMinutes(10).toMillis();
+	private static final TrendingWindow[] WINDOWS = TrendingWindow.values();
+
+	private final LongSupplier clock;
+	private final int[] windowBuckets = new int[WINDOWS.length];
+	private final PopularityIndex[] rankings = new PopularityIndex[WINDOWS.length];
+	private final int retainedBuckets;
+	private final Map<Integer, FilmTrend> films = new ConcurrentHashMap<>();
+	/** Фильмы с лайками в каждой корзине: по ним находятся фильмы, у которых корзина выпадает из окна */
+	private final Map<Long, Set<Integer>> bucketFilms = new ConcurrentHashMap<>();
+	private final StripedLocks locks = new StripedLocks();
+	private final ReentrantReadWriteLock rolloverLock = new ReentrantReadWriteLock();
+	private volatile long currentBucket;
+
+
+	TrendingIndex(LongSupplier clock) {
+		this.clock = clock;
+		int retained = 0;
+		for (int i = 0; i < WINDOWS.length; i++) {
+			windowBuckets[i] = (int) (WINDOWS[i].getDuration().toMillis() / BUCKET_MILLIS);
+			rankings[i] = new PopularityIndex();
+			retained = Math.max(retained, windowBuckets[i]);
+		}
+		retainedBuckets = retained;
+		currentBucket = clock.getAsLong() / BUCKET_MILLIS;
+	}
+
+	/**
+	 * Учесть лайк. Лайки старше самого длинного окна не учитываются
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param userId идентификатор пользователя
+	 * @param time время лайка в миллисекундах
+	 */
+	void liked(int filmId, int userId, long time) {
+		advance();
+		rolloverLock.readLock().lock();
+		try {
+			long bucket = Math.min(time / BUCKET_MILLIS, currentBucket);
+			if (bucket <= currentBucket - retainedBuckets) {
+				return;
+			}
+			ReentrantLock lock = locks.lockFor(filmId);
+			lock.lock();
+			try {
+				FilmTrend trend = films.computeIfAbsent(filmId, id -> new FilmTrend());
+				bucket = trend.add(bucket, userId);
+				if (bucket < 0) {
+					return;
+				}
+				bucketFilms.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet()).add(filmId);
+				for (int i = 0; i < WINDOWS.length; i++) {
+					if (bucket > currentBucket - windowBuckets[i]) {
+						change(filmId, trend, i, 1);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			rolloverLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Вычесть снятый лайк из корзины, в которую он попал
+	 *
+	 * @param filmId идентификатор фильма
+	 * @param userId идентификатор пользователя
+	 */
+	void unliked(int filmId, int userId) {
+		advance();
+		rolloverLock.readLock().lock();
+		try {
+			ReentrantLock lock = locks.lockFor(filmId);
+			lock.lock();
+			try {
+				FilmTrend trend = films.get(filmId);
+				long bucket = trend == null ? -1 : trend.remove(userId);
+				for (int i = 0; bucket >= 0 && i < WINDOWS.length; i++) {
+					if (bucket > currentBucket - windowBuckets[i]) {
+						change(filmId, trend, i, -1);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			rolloverLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Убрать удаленный фильм из всех окон
+	 *
+	 * @param filmId идентификатор фильма
+	 */
+	void removed(int filmId) {
+		rolloverLock.readLock().lock();
+		try {
+			ReentrantLock lock = locks.lockFor(filmId);
+			lock.lock();
+			try {
+				FilmTrend trend = films.remove(filmId);
+				for (int i = 0; trend != null && i < WINDOWS.length; i++) {
+					rankings[i].remove(filmId, trend.counts[i]);
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			rolloverLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Идентификаторы фильмов с наибольшим количеством лайков за окно
+	 *
+	 * @param window окно
+	 * @param count максимальное количество фильмов
+	 * @return идентификаторы фильмов в порядке убывания количества лайков за окно
+	 */
+	List<Integer> top(TrendingWindow window, int count) {
+		advance();
+		return rankings[window.ordinal()].top(count);
+	}
+
+	/**
+	 * Перейти к текущей корзине: вычесть из окон выпавшие корзины и забыть корзины старше самого длинного окна
+	 */
+	private void advance() {
+		long now = clock.getAsLong() / BUCKET_MILLIS;
+		if (now <= currentBucket) {
+			return;
+		}
+		rolloverLock.writeLock().lock();
+		try {
+			if (now - currentBucket >= retainedBuckets) {
+				// все корзины выпали из всех окон
+				for (Map.Entry<Integer, FilmTrend> entry : films.entrySet()) {
+					for (int i = 0; i < WINDOWS.length; i++) {
+						rankings[i].remove(entry.getKey(), entry.getValue().counts[i]);
+					}
+				}
+				films.clear();
+				bucketFilms.clear();
+				currentBucket = now;
+				return;
+			}
+			while (currentBucket < now) {
+				currentBucket++;
+				for (int i = 0; i < WINDOWS.length; i++) {
+					expire(currentBucket - windowBuckets[i], i);
+				}
+				long oldest = currentBucket - retainedBuckets;
+				Set<Integer> filmIds = bucketFilms.remove(oldest);
+				if (filmIds != null) {
+					for (int filmId : filmIds) {
+						FilmTrend trend = films.get(filmId);
+						if (trend != null && trend.dropUpTo(oldest)) {
+							films.remove(filmId);
+						}
+					}
+				}
+			}
+		} finally {
+			rolloverLock.writeLock().unlock();
+		}
+	}
+
+	private void expire(long bucket, int window) {
+		Set<Integer> filmIds = bucketFilms.get(bucket);
+		if (filmIds == null) {
+			return;
+		}
+		for (int filmId : filmIds) {
+			FilmTrend trend = films.get(filmId);
+			int likes = trend == null ? 0 : trend.likesIn(bucket);
+			if (likes > 0) {
+				change(filmId, trend, window, -likes);
+			}
+		}
+	}
+
+	private void change(int filmId, FilmTrend trend, int window, int delta) {
+		int oldLikes = trend.counts[window];
+		int newLikes = oldLikes + delta;
+		trend.counts[window] = newLikes;
+		if (oldLikes == 0) {
+			rankings[window].add(filmId, newLikes);
+		} else if (newLikes == 0) {
+			rankings[window].remove(filmId, oldLikes);
+		} else {
+			rankings[window].update(filmId, oldLikes, newLikes);
+		}
+	}
+
+	/**
+	 * Корзины лайков одного фильма в порядке времени и количество его лайков в каждом окне
+	 */
+	private static final class FilmTrend {
+		private final ArrayDeque<Bucket> buckets = new ArrayDeque<>();
+		private final int[] counts = new int[WINDOWS.length];
+
+		/**
+		 * Добавить лайк в корзину. Лайк, опоздавший относительно последней корзины, попадает в нее
+		 *
+		 * @return корзина, в которую попал лайк, или -1, если лайк пользователя уже учтен в какой-либо корзине
+		 */
+		long add(long bucket, int userId) {
+			for (Bucket existing : buckets) {
+				if (existing.users().contains(userId)) {
+					return -1;
+				}
+			}
+			Bucket last = buckets.peekLast();
+			if (last == null || last.time() < bucket) {
+				last = new Bucket(bucket, new IdSet());
+				buckets.addLast(last);
+			}
+			return last.users().add(userId) ? last.time() : -1;
+		}
+
+		/**
+		 * Убрать лайк пользователя
+		 *
+		 * @return корзина, в которой был лайк, или -1, если лайка в корзинах нет
+		 */
+		long remove(int userId) {
+			for (Bucket bucket : buckets) {
+				if (bucket.users().remove(userId)) {
+					return bucket.time();
+				}
+			}
+			return -1;
+		}
+
+		int likesIn(long time) {
+			for (Bucket bucket : buckets) {
+				if (bucket.time() == time) {
+					return bucket.users().size();
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Забыть корзины не новее указанной
+		 *
+		 * @return true, если корзин не осталось
+		 */
+		boolean dropUpTo(long time) {
+			while (!buckets.isEmpty() && buckets.peekFirst().time() <= time) {
+				buckets.pollFirst();
+			}
+			return buckets.isEmpty();
+		}
+	}
+
+	private record Bucket(long time, IdSet users) {
+	}
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Запись журнала изменений пользователей. Все операции идемпотентны и могут повторяться при восстановлении
+ *
+ * @param operation операция
+ * @param user сохраненный пользователь (для SAVE)
+ * @param userId идентификатор пользователя
+ * @param friendId идентификатор друга (для операций с друзьями)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record UserJournalEntry(Operation operation, User user, Integer userId, Integer friendId) {
+
+	enum Operation {
+		SAVE, DELETE, ADD_FRIEND, REMOVE_FRIEND
+	}
+
+	static UserJournalEntry save(User user) {
+		return new UserJournalEntry(Operation.SAVE, user, user.getId(), null);
+	}
+
+	static UserJournalEntry delete(Integer userId) {
+		return new UserJournalEntry(Operation.DELETE, null, userId, null);
+	}
+
+	static UserJournalEntry addFriend(Integer userId, Integer friendId) {
+		return new UserJournalEntry(Operation.ADD_FRIEND, null, userId, friendId);
+	}
+
+	static UserJournalEntry removeFriend(Integer userId, Integer friendId) {
+		return new UserJournalEntry(Operation.REMOVE_FRIEND, null, userId, friendId);
+	}
+}
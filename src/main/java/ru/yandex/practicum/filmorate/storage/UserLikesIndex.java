@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.IdSet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Обратный индекс лайков: пользователь → id фильмов, которым он поставил лайк.
+ * Обновляется вместе с {@code Film.likes} под блокировкой фильма; множества фильмов пользователя
+ * дополнительно защищены собственными блокировками, так как их меняют лайки разных фильмов.
+ * Блокировки индекса всегда берутся после блокировки фильма, поэтому взаимных блокировок нет
+ */
+class UserLikesIndex {
+	private static final int[] EMPTY = new int[0];
+
+	private final Map<Integer, IdSet> likedFilms = new ConcurrentHashMap<>();
+	private final StripedLocks locks = new StripedLocks();
+
+
+	/**
+	 * Запомнить лайк пользователя
+	 *
+	 * @param userId идентификатор пользователя
+	 * @param filmId идентификатор фильма
+	 */
+	void add(int userId, int filmId) {
+		ReentrantLock lock = locks.lockFor(userId);
+		lock.lock();
+		try {
+			likedFilms.computeIfAbsent(userId, id -> new IdSet()).add(filmId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Забыть лайк пользователя
+	 *
+	 * @param userId идентификатор пользователя
+	 * @param filmId идентификатор фильма
+	 */
+	void remove(int userId, int filmId) {
+		ReentrantLock lock = locks.lockFor(userId);
+		lock.lock();
+		try {
+			IdSet films = likedFilms.get(userId);
+			if (films != null && films.remove(filmId) && films.isEmpty()) {
+				likedFilms.remove(userId);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Фильмы, которым пользователь поставил лайк. Множество читается под блокировкой пользователя,
+	 * поэтому массив соответствует одному состоянию его лайков; пока лайки не меняются,
+	 * отсортированный массив берется из кэша множества
+	 *
+	 * @param userId идентификатор пользователя
+	 * @return отсортированные id фильмов; изменять массив нельзя
+	 */
+	int[] filmsOf(int userId) {
+		ReentrantLock lock = locks.lockFor(userId);
+		lock.lock();
+		try {
+			IdSet films = likedFilms.get(userId);
+			return films == null ? EMPTY : films.toSortedArray();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
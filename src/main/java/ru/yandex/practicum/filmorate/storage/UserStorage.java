@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 public interface UserStorage {
@@ -10,6 +13,12 @@ public interface UserStorage {
 	User addUser(User user);
 
 
+	List<User> addUsers(List<User> users);
+
+
+	/**
+	 * Обновить данные пользователя. Дружбы не меняются: у возвращенного пользователя сохраненные друзья
+	 */
 	User updateUser(User user);
 
 
@@ -20,4 +29,34 @@ public interface UserStorage {
 
 
 	List<User> getAllUsers();
+
+
+	Stream<User> streamUsers();
+
+
+	List<User> getUsersPage(Integer afterId, int limit);
+
+
+	List<User> getUsersByIds(Collection<Integer> ids);
+
+
+	void addFriend(Integer userId, Integer friendId);
+
+
+	void addFriends(List<Friendship> friendships);
+
+
+	void removeFriend(Integer userId, Integer friendId);
+
+
+	List<User> getCommonFriends(Integer userId, Integer otherId);
+
+
+	List<User> getFriendRecommendations(Integer userId, int limit);
+
+
+	long getUsersCount();
+
+
+	long getFriendshipsCount();
 }
@@ -0,0 +1,44 @@
+CREATE TABLE IF NOT EXISTS films (
+	id           INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	name         VARCHAR(255) NOT NULL,
+	description  VARCHAR(200),
+	release_date DATE,
+	duration     INT,
+	-- количество лайков хранится в фильме, чтобы популярные фильмы читались по индексу без группировки
+	like_count   INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (like_count DESC, id);
+-- популярные фильмы с фильтром по году выпуска или продолжительности
+CREATE INDEX IF NOT EXISTS films_release_popularity_idx ON films (release_date, like_count DESC, id);
+CREATE INDEX IF NOT EXISTS films_duration_popularity_idx ON films (duration, like_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS users (
+	id       INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	email    VARCHAR(255) NOT NULL,
+	login    VARCHAR(255) NOT NULL,
+	name     VARCHAR(255),
+	birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS film_likes (
+	film_id INT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+	user_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	PRIMARY KEY (film_id, user_id)
+);
+
+-- время лайка для набирающих популярность фильмов; в базах, созданных раньше, колонки нет
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS film_likes_created_idx ON film_likes (created_at, film_id);
+
+-- дружба симметрична: для каждой пары хранятся обе строки (a, b) и (b, a)
+CREATE TABLE IF NOT EXISTS friendships (
+	user_id   INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+	friend_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+	PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id, user_id);
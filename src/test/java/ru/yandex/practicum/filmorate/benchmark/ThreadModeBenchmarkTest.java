@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение пропускной способности и задержек при обслуживании запросов пулом потоков Tomcat
+ * и виртуальными потоками. Приложение запускается с хранилищем jdbc, чтобы каждый запрос
+ * выполнял несколько коротких блокирующих обращений к базе.
+ * <p>
+ * Запуск: {@code mvn test -Dtest=ThreadModeBenchmarkTest -Dbenchmark=true},
+ * параметры {@code -Dbenchmark.concurrency=1000 -Dbenchmark.requests=50000}
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadModeBenchmarkTest {
+	private static final int USERS = 1_000;
+	private static final int FILMS = 1_000;
+	private static final int FRIENDS_PER_USER = 20;
+	private static final int WRITE_PERCENT = 30;
+
+	private final int concurrency = Integer.getInteger("benchmark.concurrency", 1_000);
+	private final int requests = Integer.getInteger("benchmark.requests", 50_000);
+
+	@ParameterizedTest(name = "virtual threads: {0}")
+	@ValueSource(booleans = {false, true})
+	void friendsAndLikesUnderHighConcurrency(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = start(virtualThreads);
+			 ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			seed(client, baseUrl, clients);
+			// прогрев JIT и пула соединений
+			run(client, baseUrl, clients, requests / 5);
+
+			long[] latencies = new long[requests];
+			long started = System.nanoTime();
+			AtomicInteger errors = run(client, baseUrl, clients, latencies);
+			long elapsed = System.nanoTime() - started;
+
+			Arrays.sort(latencies);
+			log.info("Виртуальные потоки: {}, параллельных клиентов: {}, запросов: {}, ошибок: {}", virtualThreads,
+					concurrency, requests, errors.get());
+			log.info("Пропускная способность: {} запросов/с, задержка p50 {} мс, p99 {} мс, p99.9 {} мс, максимум {} мс",
+					requests * 1_000_000_000L / elapsed, millis(latencies, 0.50), millis(latencies, 0.99),
+					millis(latencies, 0.999), millis(latencies, 1.0));
+			assertEquals(0, errors.get());
+		}
+	}
+
+	private ConfigurableApplicationContext start(boolean virtualThreads) {
+		return new SpringApplicationBuilder(FilmorateApplication.class)
+				.profiles("jdbc")
+				.properties(
+						"server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"spring.datasource.url=jdbc:h2:mem:benchmark-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+						"spring.datasource.hikari.connection-timeout=30000",
+						"filmorate.cache.enabled=false",
+						"logging.level.org.zalando.logbook=WARN",
+						"logging.level.ru.yandex.practicum.filmorate=WARN",
+						"logging.level.ru.yandex.practicum.filmorate.benchmark=INFO")
+				.run();
+	}
+
+	private void seed(HttpClient client, String baseUrl, ExecutorService clients) throws Exception {
+		for (int i = 0; i < USERS; i++) {
+			send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/users"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"email\":\"user" + i + "@mail.ru\",\"login\":\"user" + i + "\",\"birthday\":\"1990-01-01\"}"))
+					.build());
+		}
+		for (int i = 0; i < FILMS; i++) {
+			send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/films"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"name\":\"film" + i + "\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+					.build());
+		}
+		List<Future<?>> tasks = new ArrayList<>(USERS);
+		for (int i = 1; i <= USERS; i++) {
+			int user = i;
+			tasks.add(clients.submit(() -> {
+				for (int k = 1; k <= FRIENDS_PER_USER / 2; k++) {
+					int friend = (user + k * 37) % USERS + 1;
+					send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + user + "/friends/" + friend))
+							.PUT(HttpRequest.BodyPublishers.noBody())
+							.build());
+				}
+				return null;
+			}));
+		}
+		for (Future<?> task : tasks) {
+			task.get();
+		}
+	}
+
+	private AtomicInteger run(HttpClient client, String baseUrl, ExecutorService clients, int count) throws Exception {
+		return run(client, baseUrl, clients, new long[count]);
+	}
+
+	/**
+	 * Выполнить запросы: concurrency клиентов, каждый отправляет запросы последовательно
+	 */
+	private AtomicInteger run(HttpClient client, String baseUrl, ExecutorService clients, long[] latencies)
+			throws Exception {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		List<Future<?>> tasks = new ArrayList<>(concurrency);
+		for (int c = 0; c < concurrency; c++) {
+			tasks.add(clients.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				int index;
+				while ((index = next.getAndIncrement()) < latencies.length) {
+					HttpRequest request = random.nextInt(100) < WRITE_PERCENT
+							? HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + (random.nextInt(FILMS) + 1)
+									+ "/like/" + (random.nextInt(USERS) + 1)))
+							.PUT(HttpRequest.BodyPublishers.noBody()).build()
+							: HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + (random.nextInt(USERS) + 1)
+									+ "/friends")).GET().build();
+					long started = System.nanoTime();
+					try {
+						if (send(client, request) != 200) {
+							errors.incrementAndGet();
+						}
+					} catch (Exception e) {
+						errors.incrementAndGet();
+					}
+					latencies[index] = System.nanoTime() - started;
+				}
+				return null;
+			}));
+		}
+		for (Future<?> task : tasks) {
+			task.get();
+		}
+		return errors;
+	}
+
+	private static int send(HttpClient client, HttpRequest request) throws Exception {
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private static String millis(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+		return String.format("%.1f", sortedLatencies[Math.max(0, index)] / 1_000_000.0);
+	}
+}
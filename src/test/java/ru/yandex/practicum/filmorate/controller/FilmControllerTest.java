@@ -1,29 +1,55 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportReport;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class FilmControllerTest {
 
 	private FilmController filmController;
+	private UserFilmController userFilmController;
+	private InMemoryUserStorage userStorage;
 	private Film validFilm;
 	private static final String FILM_DESCRIPTION = "Description";
 	private static final String FILM_NAME = "nisi eiusmod";
+	private static final String POPULAR_PATH = "/films/popular";
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
 	@BeforeEach
 	void setUp() {
 		//создаем хранилище и сервис до создания контроллерв
-		FilmService filmService = new FilmService(new InMemoryFilmStorage(), new InMemoryUserStorage());
-		filmController = new FilmController(filmService);
+		userStorage = new InMemoryUserStorage();
+		FilmService filmService = new FilmService(new InMemoryFilmStorage(), userStorage);
+		filmController = new FilmController(filmService, objectMapper);
+		userFilmController = new UserFilmController(filmService);
 		validFilm = new Film();
 		validFilm.setName(FILM_NAME);
 		validFilm.setDescription(FILM_DESCRIPTION);
@@ -106,4 +132,353 @@ class FilmControllerTest {
 		Film emptyFilm = new Film();
 		assertThrows(ValidationException.class, () -> filmController.createFilm(emptyFilm));
 	}
+
+	@Test
+	void getPopularFilms_OrderedByLikesThenIdPositiveTest() throws IOException {
+		Film first = createFilm();
+		Film second = createFilm();
+		Film third = createFilm();
+		User user = createUser();
+		User otherUser = createUser();
+
+		filmController.addLike(third.getId(), user.getId());
+		filmController.addLike(third.getId(), otherUser.getId());
+		filmController.addLike(second.getId(), user.getId());
+
+		List<Film> popular = popularFilms(null);
+		assertNotNull(popular);
+		assertEquals(List.of(third.getId(), second.getId(), first.getId()), popular.stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void getPopularFilms_ReflectsRemovedLikePositiveTest() throws IOException {
+		Film first = createFilm();
+		Film second = createFilm();
+		User user = createUser();
+
+		filmController.addLike(second.getId(), user.getId());
+		filmController.removeLike(second.getId(), user.getId());
+
+		List<Film> popular = popularFilms(1);
+		assertNotNull(popular);
+		assertEquals(List.of(first.getId()), popular.stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void getPopularFilms_FilteredWithoutEtagPositiveTest() throws Exception {
+		createFilm();
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		filmController.getPopularFilms(5, null, null, null, null, new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH), first));
+
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", POPULAR_PATH);
+		conditional.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+		MockHttpServletResponse filtered = new MockHttpServletResponse();
+		ResponseEntity<byte[]> response = filmController.getPopularFilms(5, null, 1999, null, null,
+				new ServletWebRequest(conditional, filtered));
+
+		assertNotNull(response);
+		assertEquals(HttpStatus.OK.value(), filtered.getStatus());
+		assertNull(filtered.getHeader(HttpHeaders.ETAG));
+		assertTrue(objectMapper.readValue(response.getBody(), new TypeReference<List<Film>>() {
+		}).isEmpty());
+	}
+
+	@Test
+	void getPopularFilms_NotModifiedUntilLikeChangesPositiveTest() throws Exception {
+		Film film = createFilm();
+		User user = createUser();
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		filmController.getPopularFilms(5, null, null, null, null, new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH), first));
+		String etag = first.getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", POPULAR_PATH);
+		conditional.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		MockHttpServletResponse notModified = new MockHttpServletResponse();
+		assertNull(filmController.getPopularFilms(5, null, null, null, null, new ServletWebRequest(conditional, notModified)));
+		assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.getStatus());
+
+		filmController.addLike(film.getId(), user.getId());
+		MockHttpServletResponse modified = new MockHttpServletResponse();
+		ResponseEntity<byte[]> response = filmController.getPopularFilms(5, null, null, null, null, new ServletWebRequest(conditional, modified));
+		assertNotNull(response);
+		assertNotEquals(etag, modified.getHeader(HttpHeaders.ETAG));
+		List<Film> popular = objectMapper.readValue(response.getBody(), new TypeReference<>() {
+		});
+		assertEquals(Set.of(user.getId()), popular.get(0).getLikes());
+	}
+
+	@Test
+	void getPopularFilms_TrendingWindowPositiveTest() throws IOException {
+		Film first = createFilm();
+		Film second = createFilm();
+		User user = createUser();
+		User other = createUser();
+		filmController.addLike(first.getId(), user.getId());
+		filmController.addLike(second.getId(), user.getId());
+		filmController.addLike(second.getId(), other.getId());
+
+		ResponseEntity<byte[]> response = filmController.getPopularFilms(null, "24h", null, null, null,
+				new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH)));
+		List<Film> trending = objectMapper.readValue(response.getBody(), new TypeReference<>() {
+		});
+		assertEquals(List.of(second.getId(), first.getId()), trending.stream().map(Film::getId).toList());
+		assertThrows(ValidationException.class, () -> filmController.getPopularFilms(null, "2h", null, null, null,
+				new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH))));
+		assertThrows(ValidationException.class, () -> filmController.getPopularFilms(null, "day", null, null, null,
+				new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH))));
+	}
+
+	@Test
+	void getPopularFilms_TrendingWindowFollowsUpdatedLikesPositiveTest() throws IOException {
+		Film first = createFilm();
+		Film second = createFilm();
+		User user = createUser();
+		User other = createUser();
+		filmController.addLike(first.getId(), user.getId());
+		filmController.addLike(second.getId(), user.getId());
+		filmController.addLike(second.getId(), other.getId());
+
+		Film updated = new Film();
+		updated.setId(second.getId());
+		updated.setName(FILM_NAME);
+		updated.setReleaseDate(LocalDate.of(2000, 1, 1));
+		updated.setDuration(120);
+		filmController.updateFilm(updated);
+		assertEquals(List.of(first.getId()), trendingFilmIds("24h"));
+
+		filmController.addLike(second.getId(), other.getId());
+		assertEquals(List.of(first.getId(), second.getId()), trendingFilmIds("24h"));
+	}
+
+	@Test
+	void getPopularFilms_FilteredByYearAndDurationPositiveTest() throws IOException {
+		List<Film> films = new ArrayList<>();
+		int[][] attributes = {{1999, 95}, {1999, 160}, {2000, 100}, {1999, 120}, {2001, 140}};
+		for (int[] attribute : attributes) {
+			Film film = new Film();
+			film.setName(FILM_NAME);
+			film.setReleaseDate(LocalDate.of(attribute[0], 6, 1));
+			film.setDuration(attribute[1]);
+			films.add(filmController.createFilm(film).getBody());
+		}
+		User first = createUser();
+		User second = createUser();
+		like(first, films, 1, 2, 3, 4);
+		like(second, films, 3, 4);
+
+		assertEquals(List.of(films.get(3).getId(), films.get(1).getId(), films.get(0).getId()),
+				popularFilms(10, 1999, null, null).stream().map(Film::getId).toList());
+		assertEquals(List.of(films.get(3).getId(), films.get(0).getId()),
+				popularFilms(10, 1999, 90, 150).stream().map(Film::getId).toList());
+		assertEquals(List.of(films.get(3).getId(), films.get(4).getId()),
+				popularFilms(2, null, 110, null).stream().map(Film::getId).toList());
+		assertTrue(popularFilms(10, 1980, null, null).isEmpty());
+		assertThrows(ValidationException.class, () -> popularFilms(10, null, 150, 90));
+	}
+
+	@Test
+	void createFilm_ParallelRequestsGetUniqueIdsPositiveTest() {
+		int filmCount = 1_000;
+		Set<Integer> ids = IntStream.range(0, filmCount).parallel()
+				.mapToObj(i -> createFilm().getId())
+				.collect(Collectors.toSet());
+		assertEquals(filmCount, ids.size());
+		assertEquals(filmCount, filmController.getAllFilms(null, null).getBody().size());
+	}
+
+	@Test
+	void getAllFilms_PagesByCursorPositiveTest() {
+		List<Integer> ids = IntStream.range(0, 5)
+				.mapToObj(i -> createFilm().getId())
+				.toList();
+
+		ResponseEntity<List<Film>> firstPage = filmController.getAllFilms(null, 2);
+		assertEquals(ids.subList(0, 2), firstPage.getBody().stream().map(Film::getId).toList());
+		String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+		assertEquals(String.valueOf(ids.get(1)), cursor);
+
+		ResponseEntity<List<Film>> lastPage = filmController.getAllFilms(ids.get(3), 2);
+		assertEquals(List.of(ids.get(4)), lastPage.getBody().stream().map(Film::getId).toList());
+		assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+	}
+
+	@Test
+	void getAllFilms_LastDefaultSizePageWithoutCursorPositiveTest() {
+		List<Integer> ids = IntStream.range(0, 3)
+				.mapToObj(i -> createFilm().getId())
+				.toList();
+
+		ResponseEntity<List<Film>> lastPage = filmController.getAllFilms(ids.get(0), null);
+		assertEquals(ids.subList(1, 3), lastPage.getBody().stream().map(Film::getId).toList());
+		assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+	}
+
+	@Test
+	void getAllFilms_InvalidPageSizeNegativeTest() {
+		assertThrows(ValidationException.class, () -> filmController.getAllFilms(null, 0));
+	}
+
+	@Test
+	void importFilms_ReportsInvalidRecordsAndKeepsGoingPositiveTest() throws IOException {
+		String ndjson = """
+				{"name":"first","description":"d","releaseDate":"2000-01-01","duration":90}
+				{"name":"","description":"d","releaseDate":"2000-01-01","duration":90}
+				{"name":"bad","description":"d","releaseDate":"2000-01-01","duration":"long"}
+				{"name":"second","description":"d","releaseDate":"2000-01-01","duration":100}
+				""";
+
+		ImportReport report = filmController.importFilms(body(ndjson));
+
+		assertEquals(2, report.getImported());
+		assertEquals(2, report.getFailed());
+		assertEquals(List.of(2L, 3L), report.getErrors().stream().map(ImportReport.ImportError::record).toList());
+		assertEquals(2, report.getIds().length);
+		assertEquals("second", filmController.getFilmById(report.getIds()[1]).getBody().getName());
+	}
+
+	@Test
+	void importLikes_ChecksFilmsAndUsersPositiveTest() throws IOException {
+		Film film = createFilm();
+		User user = createUser();
+		String json = "[{\"filmId\":" + film.getId() + ",\"userId\":" + user.getId() + "},"
+				+ "{\"filmId\":" + film.getId() + ",\"userId\":999},"
+				+ "{\"filmId\":999,\"userId\":" + user.getId() + "},"
+				+ "{\"filmId\":" + film.getId() + "}]";
+
+		ImportReport report = filmController.importLikes(body(json));
+
+		assertEquals(1, report.getImported());
+		assertEquals(3, report.getFailed());
+		assertEquals(Set.of(user.getId()), filmController.getFilmById(film.getId()).getBody().getLikes());
+		assertEquals(List.of(film.getId()), popularFilms(1).stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void applyLikes_KeepsLastOperationPerPairPositiveTest() throws IOException {
+		Film first = createFilm();
+		Film second = createFilm();
+		User user = createUser();
+
+		filmController.applyLikes(List.of(
+				new LikeOperation(first.getId(), user.getId(), LikeOperation.Operation.LIKE),
+				new LikeOperation(second.getId(), user.getId(), LikeOperation.Operation.LIKE),
+				new LikeOperation(first.getId(), user.getId(), LikeOperation.Operation.UNLIKE)));
+
+		assertTrue(filmController.getFilmById(first.getId()).getBody().getLikes().isEmpty());
+		assertEquals(Set.of(user.getId()), filmController.getFilmById(second.getId()).getBody().getLikes());
+		assertEquals(List.of(second.getId()), popularFilms(1).stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void applyLikes_UnknownUserRejectsWholeBatchNegativeTest() {
+		Film film = createFilm();
+		User user = createUser();
+		List<LikeOperation> operations = List.of(
+				new LikeOperation(film.getId(), user.getId(), LikeOperation.Operation.LIKE),
+				new LikeOperation(film.getId(), 999, LikeOperation.Operation.LIKE));
+
+		assertThrows(NotFoundException.class, () -> filmController.applyLikes(operations));
+		assertTrue(filmController.getFilmById(film.getId()).getBody().getLikes().isEmpty());
+	}
+
+	@Test
+	void getRecommendedFilms_RankedByLikesOfSimilarUsersPositiveTest() {
+		List<Film> films = IntStream.range(0, 6).mapToObj(i -> createFilm()).toList();
+		User user = createUser();
+		User similar = createUser();
+		User lessSimilar = createUser();
+		User stranger = createUser();
+		like(user, films, 0, 1);
+		like(similar, films, 0, 1, 2, 3);
+		like(lessSimilar, films, 0, 3, 4);
+		like(stranger, films, 5);
+
+		assertEquals(List.of(films.get(3).getId(), films.get(2).getId(), films.get(4).getId()),
+				recommendedFilmIds(user));
+
+		filmController.removeLike(films.get(3).getId(), lessSimilar.getId());
+		assertEquals(List.of(films.get(2).getId(), films.get(3).getId(), films.get(4).getId()),
+				recommendedFilmIds(user));
+		assertTrue(recommendedFilmIds(createUser()).isEmpty());
+	}
+
+	@Test
+	void getLikedFilms_FollowsLikesAndCleanupPositiveTest() throws IOException {
+		List<Film> films = IntStream.range(0, 3).mapToObj(i -> createFilm()).toList();
+		User user = createUser();
+		User other = createUser();
+		like(user, films, 2, 0);
+		like(other, films, 0);
+
+		assertEquals(List.of(films.get(0).getId(), films.get(2).getId()), likedFilmIds(user));
+
+		userFilmController.removeUserLikes(user.getId());
+
+		assertTrue(likedFilmIds(user).isEmpty());
+		assertEquals(Set.of(other.getId()), filmController.getFilmById(films.get(0).getId()).getBody().getLikes());
+		assertEquals(List.of(films.get(0).getId(), films.get(1).getId()),
+				popularFilms(2).stream().map(Film::getId).toList());
+		assertThrows(NotFoundException.class, () -> userFilmController.getLikedFilms(999));
+	}
+
+	private List<Integer> likedFilmIds(User user) {
+		return userFilmController.getLikedFilms(user.getId()).getBody().stream()
+				.map(Film::getId)
+				.toList();
+	}
+
+	private void like(User user, List<Film> films, int... indexes) {
+		for (int index : indexes) {
+			filmController.addLike(films.get(index).getId(), user.getId());
+		}
+	}
+
+	private List<Integer> recommendedFilmIds(User user) {
+		return userFilmController.getRecommendedFilms(user.getId(), null).getBody().stream()
+				.map(Film::getId)
+				.toList();
+	}
+
+	private static ByteArrayInputStream body(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<Integer> trendingFilmIds(String window) throws IOException {
+		ResponseEntity<byte[]> response = filmController.getPopularFilms(null, window, null, null, null,
+				new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH)));
+		List<Film> trending = objectMapper.readValue(response.getBody(), new TypeReference<>() {
+		});
+		return trending.stream().map(Film::getId).toList();
+	}
+
+	private List<Film> popularFilms(Integer count) throws IOException {
+		return popularFilms(count, null, null, null);
+	}
+
+	private List<Film> popularFilms(Integer count, Integer year, Integer minDuration, Integer maxDuration)
+			throws IOException {
+		ResponseEntity<byte[]> response = filmController.getPopularFilms(count, null, year, minDuration, maxDuration,
+				new ServletWebRequest(new MockHttpServletRequest("GET", POPULAR_PATH)));
+		return objectMapper.readValue(response.getBody(), new TypeReference<>() {
+		});
+	}
+
+	private Film createFilm() {
+		Film film = new Film();
+		film.setName(FILM_NAME);
+		film.setDescription(FILM_DESCRIPTION);
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(120);
+		return filmController.createFilm(film).getBody();
+	}
+
+	private User createUser() {
+		User user = new User();
+		user.setEmail("mail@mail.ru");
+		user.setLogin("login");
+		user.setName("name");
+		return userStorage.addUser(user);
+	}
 }
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import ru.yandex.practicum.filmorate.exception.ErrorHandler;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveFilmControllerTest {
+	private FilmService filmService;
+	private ReactiveFilmController controller;
+	private WebTestClient client;
+
+	@BeforeEach
+	void setUp() {
+		InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+		filmService = new FilmService(filmStorage, new InMemoryUserStorage());
+		controller = new ReactiveFilmController(filmService, Schedulers.boundedElastic());
+		client = WebTestClient.bindToController(controller)
+				.controllerAdvice(new ErrorHandler(new SimpleMeterRegistry()))
+				.build();
+	}
+
+	@Test
+	void getAllFilms_StreamsAllPagesInIdOrderPositiveTest() {
+		List<Integer> ids = IntStream.range(0, 250).mapToObj(i -> filmService.createFilm(newFilm()).getId()).toList();
+
+		List<Film> films = client.get().uri("/films").exchange()
+				.expectStatus().isOk()
+				.expectBodyList(Film.class).returnResult().getResponseBody();
+
+		assertNotNull(films);
+		assertEquals(ids, films.stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void getAllFilms_RequestsNextPageOnDemandPositiveTest() {
+		IntStream.range(0, 250).forEach(i -> filmService.createFilm(newFilm()));
+
+		StepVerifier.create(controller.getAllFilms(), 0)
+				.thenRequest(1)
+				.expectNextMatches(film -> film.getId() == 1)
+				.thenRequest(150)
+				.expectNextCount(150)
+				.thenCancel()
+				.verify();
+	}
+
+	@Test
+	void getPopularFilms_FilteredWithoutEtagPositiveTest() {
+		filmService.createFilm(newFilm());
+		String etag = client.get().uri("/films/popular").exchange()
+				.expectStatus().isOk()
+				.returnResult(Film.class).getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get().uri("/films/popular").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+				.expectStatus().isNotModified();
+		client.get().uri("/films/popular?year=1999").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+				.expectStatus().isOk()
+				.expectHeader().doesNotExist(HttpHeaders.ETAG)
+				.expectBodyList(Film.class).hasSize(0);
+	}
+
+	@Test
+	void errors_SameAsErrorHandlerNegativeTest() {
+		client.get().uri("/films/42").exchange()
+				.expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+				.expectBody().jsonPath("$.error").isEqualTo(ErrorHandler.NOT_FOUND_ERROR);
+
+		Film invalid = newFilm();
+		invalid.setName(" ");
+		client.post().uri("/films").bodyValue(invalid).exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("$.error").isEqualTo(ErrorHandler.VALIDATION_ERROR);
+
+		client.get().uri("/films?limit=0").exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	private static Film newFilm() {
+		Film film = new Film();
+		film.setName("film");
+		film.setDescription("description");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.attributes.HttpAttributes;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SampledLogbookStrategyTest {
+	private final SampledLogbookStrategy strategy = new SampledLogbookStrategy(3, Duration.ofMillis(500));
+
+	@Test
+	void process_BuffersBodyOnlyForSampledRequestsPositiveTest() throws IOException {
+		for (int i = 0; i < 6; i++) {
+			HttpRequest request = newRequest();
+			HttpAttributes attributes = strategy.extract(strategy.process(request));
+
+			boolean sampled = i % 3 == 0;
+			assertEquals(sampled, attributes.get("sampled"));
+			verify(request, times(sampled ? 1 : 0)).withBody();
+			verify(request, times(sampled ? 0 : 1)).withoutBody();
+		}
+	}
+
+	@Test
+	void write_LogsSampledAndSlowRequestsPositiveTest() throws IOException {
+		HttpRequest sampled = processed();
+		HttpRequest fast = processed();
+		HttpRequest slow = processed();
+		HttpResponse response = mock(HttpResponse.class);
+		Sink sink = mock(Sink.class);
+
+		Correlation sampledCorrelation = correlation(Duration.ofMillis(10));
+		Correlation fastCorrelation = correlation(Duration.ofMillis(499));
+		Correlation slowCorrelation = correlation(Duration.ofMillis(500));
+		strategy.write(sampledCorrelation, sampled, response, sink);
+		strategy.write(fastCorrelation, fast, response, sink);
+		strategy.write(slowCorrelation, slow, response, sink);
+
+		verify(sink).writeBoth(sampledCorrelation, sampled, response);
+		verify(sink).writeBoth(slowCorrelation, slow, response);
+		verify(sink, never()).writeBoth(fastCorrelation, fast, response);
+	}
+
+	@Test
+	void constructor_NonPositiveSampleRateNegativeTest() {
+		assertThrows(IllegalArgumentException.class, () -> new SampledLogbookStrategy(0, Duration.ofMillis(500)));
+	}
+
+	/**
+	 * Запрос в том виде, в каком Logbook передает его на запись: с атрибутами, извлеченными стратегией
+	 */
+	private HttpRequest processed() throws IOException {
+		HttpAttributes attributes = strategy.extract(strategy.process(newRequest()));
+		HttpRequest request = mock(HttpRequest.class);
+		when(request.getAttributes()).thenReturn(attributes);
+		return request;
+	}
+
+	private HttpRequest newRequest() throws IOException {
+		HttpRequest request = mock(HttpRequest.class);
+		when(request.withBody()).thenReturn(request);
+		when(request.withoutBody()).thenReturn(request);
+		return request;
+	}
+
+	private Correlation correlation(Duration duration) {
+		Correlation correlation = mock(Correlation.class);
+		when(correlation.getDuration()).thenReturn(duration);
+		return correlation;
+	}
+}
@@ -1,29 +1,46 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ImportReport;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class UserControllerTest {
-
 	private UserController userController;
+	private InMemoryUserStorage userStorage;
 	private User validUser;
 	private static final String USER_LOGIN = "dolore";
 	private static final String USER_NAME = "Nick Name";
 	private static final String USER_EMAIL = "mail@mail.ru";
+	private static final String FRIENDS_PATH = "/users/1/friends";
 
 	@BeforeEach
 	void setUp() {
 		//создаем хранилище и сервис до создания контроллерв
-		UserService userService = new UserService(new InMemoryUserStorage());
-		userController = new UserController(userService);
+		userStorage = new InMemoryUserStorage();
+		UserService userService = new UserService(userStorage);
+		userController = new UserController(userService, new ObjectMapper().findAndRegisterModules());
 		validUser = new User();
 		validUser.setEmail(USER_EMAIL);
 		validUser.setLogin(USER_LOGIN);
@@ -107,4 +124,234 @@ class UserControllerTest {
 		User emptyUser = new User();
 		assertThrows(ValidationException.class, () -> userController.createUser(emptyUser));
 	}
+
+	@Test
+	void getAllUsers_LastDefaultSizePageWithoutCursorPositiveTest() {
+		User first = userController.createUser(newUser()).getBody();
+		User second = userController.createUser(newUser()).getBody();
+
+		ResponseEntity<List<User>> lastPage = userController.getAllUsers(first.getId(), null);
+		assertEquals(List.of(second.getId()), lastPage.getBody().stream().map(User::getId).toList());
+		assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+	}
+
+	@Test
+	void addFriend_FriendshipIsSymmetricPositiveTest() {
+		User user = userController.createUser(newUser()).getBody();
+		User friend = userController.createUser(newUser()).getBody();
+
+		userController.addFriend(user.getId(), friend.getId());
+
+		assertEquals(List.of(friend.getId()), friendIds(user.getId()));
+		assertEquals(List.of(user.getId()), friendIds(friend.getId()));
+
+		userController.removeFriend(friend.getId(), user.getId());
+
+		assertTrue(friendIds(user.getId()).isEmpty());
+		assertTrue(friendIds(friend.getId()).isEmpty());
+	}
+
+	@Test
+	void addFriend_ParallelAddAndRemoveStaySymmetricPositiveTest() {
+		List<User> users = IntStream.range(0, 20)
+				.mapToObj(i -> userController.createUser(newUser()).getBody())
+				.toList();
+
+		IntStream.range(0, 20_000).parallel().forEach(i -> {
+			User first = users.get(i % users.size());
+			User second = users.get((i * 7 + 3) % users.size());
+			if (first.getId().equals(second.getId())) {
+				return;
+			}
+			if (i % 3 == 0) {
+				userController.removeFriend(second.getId(), first.getId());
+			} else {
+				userController.addFriend(first.getId(), second.getId());
+			}
+		});
+
+		for (User user : users) {
+			for (Integer friendId : friendIds(user.getId())) {
+				assertTrue(friendIds(friendId).contains(user.getId()));
+			}
+		}
+	}
+
+	@Test
+	void getCommonFriends_ReturnsIntersectionPositiveTest() {
+		User user = userController.createUser(newUser()).getBody();
+		User other = userController.createUser(newUser()).getBody();
+		List<User> friends = IntStream.range(0, 100)
+				.mapToObj(i -> userController.createUser(newUser()).getBody())
+				.toList();
+		for (int i = 0; i < friends.size(); i++) {
+			userController.addFriend(user.getId(), friends.get(i).getId());
+			if (i % 25 == 0) {
+				userController.addFriend(other.getId(), friends.get(i).getId());
+			}
+		}
+
+		List<Integer> common = userController.getCommonFriends(user.getId(), other.getId()).getBody().stream()
+				.map(User::getId)
+				.toList();
+
+		assertEquals(List.of(friends.get(0).getId(), friends.get(25).getId(), friends.get(50).getId(),
+				friends.get(75).getId()), common);
+	}
+
+	@Test
+	void getFriendRecommendations_RankedByMutualFriendsPositiveTest() {
+		User user = userController.createUser(newUser()).getBody();
+		List<User> candidates = IntStream.range(0, 100)
+				.mapToObj(i -> userController.createUser(newUser()).getBody())
+				.toList();
+		// 400 друзей с сотнями связей каждый: слияние списков идет параллельно
+		List<User> friends = IntStream.range(0, 400)
+				.mapToObj(i -> userController.createUser(newUser()).getBody())
+				.toList();
+		for (int i = 0; i < friends.size(); i++) {
+			userController.addFriend(user.getId(), friends.get(i).getId());
+			for (int j = 0; j < candidates.size() - i % candidates.size(); j++) {
+				userController.addFriend(friends.get(i).getId(), candidates.get(j).getId());
+			}
+		}
+		userController.addFriend(friends.get(0).getId(), friends.get(1).getId());
+
+		List<Integer> recommended = userController.getFriendRecommendations(user.getId(), 3).getBody().stream()
+				.map(User::getId)
+				.toList();
+
+		assertEquals(List.of(candidates.get(0).getId(), candidates.get(1).getId(), candidates.get(2).getId()),
+				recommended);
+		assertThrows(ValidationException.class, () -> userController.getFriendRecommendations(user.getId(), 0));
+	}
+
+	@Test
+	void importUsers_ReportsInvalidRecordsAndKeepsGoingPositiveTest() throws IOException {
+		String ndjson = """
+				{"email":"first@mail.ru","login":"first","birthday":"1990-08-20"}
+				{"email":"mail.ru","login":"bad","birthday":"1990-08-20"}
+				{"email":"json@mail.ru","login":"json","birthday":"yesterday"}
+				{"email":"second@mail.ru","login":"second","name":"Second","birthday":"1990-08-20"}
+				""";
+
+		ImportReport report = userController.importUsers(body(ndjson));
+
+		assertEquals(2, report.getImported());
+		assertEquals(2, report.getFailed());
+		assertEquals(List.of(2L, 3L), report.getErrors().stream().map(ImportReport.ImportError::record).toList());
+		assertEquals(List.of(ValidationException.ERROR, ValidationException.ERROR),
+				report.getErrors().stream().map(ImportReport.ImportError::error).toList());
+		assertEquals(2, report.getIds().length);
+		assertEquals("first", userController.getUserById(report.getIds()[0]).getBody().getName());
+		assertEquals("Second", userController.getUserById(report.getIds()[1]).getBody().getName());
+	}
+
+	@Test
+	void importFriendships_ChecksUsersPositiveTest() throws IOException {
+		User user = userController.createUser(newUser()).getBody();
+		User friend = userController.createUser(newUser()).getBody();
+		String json = "[{\"userId\":" + user.getId() + ",\"friendId\":" + friend.getId() + "},"
+				+ "{\"userId\":" + user.getId() + ",\"friendId\":999},"
+				+ "{\"userId\":999,\"friendId\":" + friend.getId() + "},"
+				+ "{\"userId\":" + user.getId() + "}]";
+
+		ImportReport report = userController.importFriendships(body(json));
+
+		assertEquals(1, report.getImported());
+		assertEquals(3, report.getFailed());
+		assertEquals(List.of(NotFoundException.ERROR, NotFoundException.ERROR, ValidationException.ERROR),
+				report.getErrors().stream().map(ImportReport.ImportError::error).toList());
+		assertEquals(List.of(friend.getId()), friendIds(user.getId()));
+		assertEquals(List.of(user.getId()), friendIds(friend.getId()));
+	}
+
+	@Test
+	void exportUsers_WritesOneJsonRecordPerLinePositiveTest() throws IOException {
+		userController.createUser(newUser());
+		userController.createUser(newUser());
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		userController.exportUsers().getBody().writeTo(output);
+
+		List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).startsWith("{\"id\":1,"));
+		assertTrue(lines.get(1).startsWith("{\"id\":2,"));
+	}
+
+	@Test
+	void getFriends_NotModifiedUntilFriendshipChangesPositiveTest() {
+		User user = userController.createUser(newUser()).getBody();
+		User friend = userController.createUser(newUser()).getBody();
+		User other = userController.createUser(newUser()).getBody();
+		userController.addFriend(user.getId(), friend.getId());
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		userController.getFriends(user.getId(), new ServletWebRequest(new MockHttpServletRequest("GET", FRIENDS_PATH), first));
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", FRIENDS_PATH);
+		conditional.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+
+		MockHttpServletResponse notModified = new MockHttpServletResponse();
+		assertNull(userController.getFriends(user.getId(), new ServletWebRequest(conditional, notModified)));
+		assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.getStatus());
+
+		userController.addFriend(other.getId(), user.getId());
+		MockHttpServletResponse modified = new MockHttpServletResponse();
+		assertNotNull(userController.getFriends(user.getId(), new ServletWebRequest(conditional, modified)));
+		assertEquals(HttpStatus.OK.value(), modified.getStatus());
+	}
+
+	@Test
+	void getFriends_DeletedUserWithEtagNegativeTest() {
+		User user = userController.createUser(newUser()).getBody();
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		userController.getFriends(user.getId(), new ServletWebRequest(new MockHttpServletRequest("GET", FRIENDS_PATH), first));
+		userStorage.deleteUser(user.getId());
+
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", FRIENDS_PATH);
+		conditional.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+		assertThrows(NotFoundException.class, () -> userController.getFriends(user.getId(),
+				new ServletWebRequest(conditional, new MockHttpServletResponse())));
+	}
+
+	@Test
+	void getFriends_ModifiedWhenFriendMakesNewFriendPositiveTest() {
+		User user = userController.createUser(newUser()).getBody();
+		User friend = userController.createUser(newUser()).getBody();
+		User stranger = userController.createUser(newUser()).getBody();
+		userController.addFriend(user.getId(), friend.getId());
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		userController.getFriends(user.getId(), new ServletWebRequest(new MockHttpServletRequest("GET", FRIENDS_PATH), first));
+		MockHttpServletRequest conditional = new MockHttpServletRequest("GET", FRIENDS_PATH);
+		conditional.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+
+		userController.addFriend(friend.getId(), stranger.getId());
+		MockHttpServletResponse modified = new MockHttpServletResponse();
+		ResponseEntity<List<User>> response = userController.getFriends(user.getId(),
+				new ServletWebRequest(conditional, modified));
+		assertNotNull(response);
+		assertEquals(HttpStatus.OK.value(), modified.getStatus());
+		assertTrue(response.getBody().get(0).getFriends().contains(stranger.getId()));
+	}
+
+	private User newUser() {
+		User user = new User();
+		user.setEmail(USER_EMAIL);
+		user.setLogin(USER_LOGIN);
+		user.setName(USER_NAME);
+		user.setBirthday(LocalDate.of(1990, 8, 20));
+		return user;
+	}
+
+	private static ByteArrayInputStream body(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<Integer> friendIds(Integer userId) {
+		return userController.getFriends(userId, new ServletWebRequest(new MockHttpServletRequest())).getBody().stream()
+				.map(User::getId)
+				.toList();
+	}
 }
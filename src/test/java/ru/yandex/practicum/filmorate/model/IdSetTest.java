@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSetTest {
+
+	@Test
+	void addRemove_ReturnsWhetherSetChangedPositiveTest() {
+		IdSet set = new IdSet();
+
+		assertTrue(set.add(5));
+		assertFalse(set.add(5));
+		assertTrue(set.contains(5));
+		assertFalse(set.contains(6));
+		assertTrue(set.remove(5));
+		assertFalse(set.remove(5));
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	void add_ZeroStoredOutsideTablePositiveTest() {
+		IdSet set = IdSet.of(3, 1);
+
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertEquals(3, set.size());
+		assertArrayEquals(new int[]{0, 1, 3}, set.toSortedArray());
+		assertTrue(set.remove(0));
+		assertFalse(set.contains(0));
+		assertArrayEquals(new int[]{1, 3}, set.toSortedArray());
+	}
+
+	@Test
+	void add_ResizesAndKeepsAllIdsPositiveTest() {
+		IdSet set = new IdSet();
+		for (int id = -500; id < 500; id++) {
+			assertTrue(set.add(id * 1024));
+		}
+
+		assertEquals(1000, set.size());
+		assertArrayEquals(IntStream.range(-500, 500).map(id -> id * 1024).toArray(), set.toSortedArray());
+	}
+
+	/**
+	 * Маленький диапазон id дает длинные цепочки пробирования, в том числе через конец таблицы,
+	 * поэтому удаление со сдвигом сверяется с эталонным множеством после каждой операции
+	 */
+	@Test
+	void remove_KeepsProbeChainsConsistentPositiveTest() {
+		Random random = new Random(42);
+		IdSet set = new IdSet();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int i = 0; i < 20_000; i++) {
+			int id = random.nextInt(64);
+			if (random.nextBoolean()) {
+				assertEquals(expected.add(id), set.add(id));
+			} else {
+				assertEquals(expected.remove(id), set.remove(id));
+			}
+			assertEquals(expected.size(), set.size());
+			int probe = random.nextInt(64);
+			assertEquals(expected.contains(probe), set.contains(probe));
+		}
+		assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toSortedArray());
+	}
+
+	@Test
+	void toSortedArray_CachedUntilChangePositiveTest() {
+		IdSet set = IdSet.of(9, 4, 7);
+
+		int[] first = set.toSortedArray();
+		assertSame(first, set.toSortedArray());
+		set.add(4);
+		assertSame(first, set.toSortedArray());
+
+		set.add(1);
+		int[] second = set.toSortedArray();
+		assertNotSame(first, second);
+		assertArrayEquals(new int[]{1, 4, 7, 9}, second);
+		assertArrayEquals(new int[]{4, 7, 9}, first);
+	}
+
+	@Test
+	void intersect_CommonIdsInOrderPositiveTest() {
+		IdSet first = IdSet.of(1, 3, 5, 7, 9);
+		IdSet second = IdSet.of(9, 2, 3, 4, 7);
+
+		assertArrayEquals(new int[]{3, 7, 9}, first.intersect(second));
+		assertArrayEquals(new int[0], first.intersect(new IdSet()));
+
+		int[] large = IntStream.range(0, 10_000).map(id -> id * 2).toArray();
+		assertArrayEquals(new int[]{0, 5000, 19998}, IdSet.intersectSorted(new int[]{-1, 0, 5000, 5001, 19998}, large));
+	}
+
+	/**
+	 * Читатель без блокировок не должен видеть дубликаты или терять постоянные id,
+	 * пока писатель добавляет и удаляет соседние id с перестройкой цепочек и таблицы
+	 */
+	@Test
+	void toSortedArray_ConsistentDuringConcurrentWritesPositiveTest() throws InterruptedException {
+		IdSet set = new IdSet();
+		int[] permanent = IntStream.rangeClosed(1, 64).toArray();
+		for (int id : permanent) {
+			set.add(id);
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			Random random = new Random(7);
+			while (!stop.get()) {
+				int id = 65 + random.nextInt(256);
+				if (!set.add(id)) {
+					set.remove(id);
+				}
+			}
+		});
+		writer.start();
+		long deadline = System.nanoTime() + 300_000_000L;
+		while (System.nanoTime() < deadline && failure.get() == null) {
+			int[] ids = set.toSortedArray();
+			for (int i = 1; i < ids.length; i++) {
+				if (ids[i - 1] >= ids[i]) {
+					failure.set("Повтор или нарушение порядка: " + Arrays.toString(ids));
+				}
+			}
+			if (Arrays.binarySearch(ids, 1) < 0 || Arrays.binarySearch(ids, 64) < 0) {
+				failure.set("Потерян постоянный id: " + Arrays.toString(ids));
+			}
+			for (int id : permanent) {
+				if (!set.contains(id)) {
+					failure.set("contains не нашел " + id);
+				}
+			}
+		}
+		stop.set(true);
+		writer.join();
+		assertNull(failure.get());
+	}
+}
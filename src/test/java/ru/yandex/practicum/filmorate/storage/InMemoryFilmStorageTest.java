@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+	private final AtomicLong now = new AtomicLong(Duration.ofDays(365).toMillis());
+	private final InMemoryFilmStorage storage = new InMemoryFilmStorage(now::get);
+
+	@Test
+	void getTrendingFilms_CountsLikesInsideWindowPositiveTest() {
+		Film old = storage.addFilm(newFilm("old"));
+		Film recent = storage.addFilm(newFilm("recent"));
+		storage.addLike(old.getId(), 1);
+		storage.addLike(old.getId(), 2);
+		storage.addLike(old.getId(), 3);
+
+		advance(Duration.ofHours(2));
+		storage.applyLikes(List.of(new LikeOperation(recent.getId(), 1, LikeOperation.Operation.LIKE)));
+
+		assertEquals(List.of(recent.getId()), trendingIds(TrendingWindow.HOUR));
+		assertEquals(List.of(old.getId(), recent.getId()), trendingIds(TrendingWindow.DAY));
+
+		advance(Duration.ofHours(23));
+		assertEquals(List.of(recent.getId()), trendingIds(TrendingWindow.DAY));
+		assertEquals(List.of(old.getId(), recent.getId()), trendingIds(TrendingWindow.WEEK));
+		assertEquals(List.of(old.getId(), recent.getId()),
+				storage.getPopularFilms(10).stream().map(Film::getId).toList());
+
+		advance(Duration.ofDays(30));
+		assertTrue(trendingIds(TrendingWindow.WEEK).isEmpty());
+	}
+
+	@Test
+	void getTrendingFilms_RemovedLikesAndFilmsNotCountedPositiveTest() {
+		Film first = storage.addFilm(newFilm("first"));
+		Film second = storage.addFilm(newFilm("second"));
+		storage.addLike(first.getId(), 1);
+		storage.addLike(first.getId(), 2);
+		storage.addLike(second.getId(), 1);
+		advance(Duration.ofMinutes(30));
+		storage.removeLike(first.getId(), 1);
+		storage.removeUserLikes(2);
+
+		assertEquals(List.of(second.getId()), trendingIds(TrendingWindow.HOUR));
+
+		storage.deleteFilm(second.getId());
+		assertTrue(trendingIds(TrendingWindow.HOUR).isEmpty());
+	}
+
+	@Test
+	void getPopularFilms_FilterFollowsUpdatedAndDeletedFilmsPositiveTest() {
+		Film film = storage.addFilm(newFilm("film"));
+		storage.addLike(film.getId(), 1);
+		Film updated = newFilm("updated");
+		updated.setId(film.getId());
+		updated.setReleaseDate(LocalDate.of(2005, 1, 1));
+		updated.setDuration(150);
+		updated.setLikes(film.getLikes());
+		storage.updateFilm(updated);
+
+		assertTrue(storage.getPopularFilms(10, 2000, null, null).isEmpty());
+		assertTrue(storage.getPopularFilms(10, null, null, 120).isEmpty());
+		assertEquals(List.of(film.getId()),
+				storage.getPopularFilms(10, 2005, 150, 150).stream().map(Film::getId).toList());
+
+		storage.deleteFilm(film.getId());
+		assertTrue(storage.getPopularFilms(10, 2005, null, null).isEmpty());
+		assertTrue(storage.getPopularFilms(10, null, 100, null).isEmpty());
+	}
+
+	private void advance(Duration duration) {
+		now.addAndGet(duration.toMillis());
+	}
+
+	private List<Integer> trendingIds(TrendingWindow window) {
+		return storage.getTrendingFilms(window, 10).stream().map(Film::getId).toList();
+	}
+
+	private Film newFilm(String name) {
+		Film film = new Film();
+		film.setName(name);
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+}
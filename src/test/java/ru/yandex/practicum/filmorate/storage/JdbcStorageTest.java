@@ -0,0 +1,327 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcStorageTest {
+	private EmbeddedDatabase database;
+	private JdbcFilmStorage filmStorage;
+	private JdbcUserStorage userStorage;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.addScript("schema.sql")
+				.build();
+		NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+		filmStorage = new JdbcFilmStorage(jdbc, transactionTemplate);
+		userStorage = new JdbcUserStorage(jdbc, transactionTemplate);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void getPopularFilms_OrderedByLikeCountPositiveTest() {
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		Film film1 = filmStorage.addFilm(newFilm("film1"));
+		Film film2 = filmStorage.addFilm(newFilm("film2"));
+		Film film3 = filmStorage.addFilm(newFilm("film3"));
+
+		filmStorage.addLike(film2.getId(), first.getId());
+		filmStorage.addLike(film2.getId(), second.getId());
+		filmStorage.addLike(film2.getId(), second.getId());
+		filmStorage.addLike(film3.getId(), first.getId());
+		filmStorage.addLike(film1.getId(), first.getId());
+		filmStorage.removeLike(film1.getId(), first.getId());
+
+		List<Film> popular = filmStorage.getPopularFilms(10);
+		assertEquals(List.of(film2.getId(), film3.getId(), film1.getId()), popular.stream().map(Film::getId).toList());
+		assertEquals(List.of(first.getId(), second.getId()), List.copyOf(popular.get(0).getLikes()));
+		assertEquals(1, filmStorage.getPopularFilms(1).size());
+		assertEquals(3, filmStorage.getFilmsCount());
+		assertEquals(3, filmStorage.getLikesCount());
+	}
+
+	@Test
+	void applyLikes_UpdatesLikeCountsOncePerFilmPositiveTest() {
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		Film film1 = filmStorage.addFilm(newFilm("film1"));
+		Film film2 = filmStorage.addFilm(newFilm("film2"));
+		filmStorage.addLike(film1.getId(), first.getId());
+
+		filmStorage.applyLikes(List.of(
+				new LikeOperation(film1.getId(), first.getId(), LikeOperation.Operation.UNLIKE),
+				new LikeOperation(film2.getId(), first.getId(), LikeOperation.Operation.LIKE),
+				new LikeOperation(film2.getId(), second.getId(), LikeOperation.Operation.LIKE),
+				new LikeOperation(film1.getId(), second.getId(), LikeOperation.Operation.UNLIKE)));
+
+		assertEquals(List.of(film2.getId(), film1.getId()),
+				filmStorage.getPopularFilms(10).stream().map(Film::getId).toList());
+		assertTrue(filmStorage.getFilmById(film1.getId()).getLikes().isEmpty());
+		assertEquals(2, filmStorage.getLikesCount());
+	}
+
+	@Test
+	void getPopularFilms_FilteredByYearAndDurationPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		Film short1999 = newFilm("short1999");
+		short1999.setReleaseDate(LocalDate.of(1999, 12, 31));
+		short1999.setDuration(80);
+		Film long1999 = newFilm("long1999");
+		long1999.setReleaseDate(LocalDate.of(1999, 1, 1));
+		long1999.setDuration(140);
+		Film long2000 = newFilm("long2000");
+		long2000.setReleaseDate(LocalDate.of(2000, 1, 1));
+		long2000.setDuration(140);
+		filmStorage.addFilms(List.of(short1999, long1999, long2000));
+		filmStorage.addLike(long2000.getId(), user.getId());
+
+		assertEquals(List.of(short1999.getId(), long1999.getId()),
+				filmStorage.getPopularFilms(10, 1999, null, null).stream().map(Film::getId).toList());
+		assertEquals(List.of(long1999.getId()),
+				filmStorage.getPopularFilms(10, 1999, 90, 150).stream().map(Film::getId).toList());
+		assertEquals(List.of(long2000.getId(), long1999.getId()),
+				filmStorage.getPopularFilms(10, null, 100, null).stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void getTrendingFilms_CountsLikesInsideWindowPositiveTest() {
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		Film film1 = filmStorage.addFilm(newFilm("film1"));
+		Film film2 = filmStorage.addFilm(newFilm("film2"));
+		Film film3 = filmStorage.addFilm(newFilm("film3"));
+		filmStorage.addLike(film1.getId(), first.getId());
+		filmStorage.addLike(film2.getId(), first.getId());
+		filmStorage.addLike(film2.getId(), second.getId());
+		filmStorage.addLike(film3.getId(), second.getId());
+		filmStorage.removeLike(film3.getId(), second.getId());
+		new NamedParameterJdbcTemplate(database).update("UPDATE film_likes SET created_at = DATEADD('DAY', -2, created_at) "
+				+ "WHERE film_id = :filmId", Map.of("filmId", film1.getId()));
+
+		assertEquals(List.of(film2.getId()),
+				filmStorage.getTrendingFilms(TrendingWindow.DAY, 10).stream().map(Film::getId).toList());
+		assertEquals(List.of(film2.getId(), film1.getId()),
+				filmStorage.getTrendingFilms(TrendingWindow.WEEK, 10).stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void updateFilm_KeepsLikeTimesPositiveTest() {
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		User third = userStorage.addUser(newUser("third"));
+		Film film = filmStorage.addFilm(newFilm("film"));
+		filmStorage.addLike(film.getId(), first.getId());
+		filmStorage.addLike(film.getId(), second.getId());
+		new NamedParameterJdbcTemplate(database).update("UPDATE film_likes SET created_at = DATEADD('DAY', -2, created_at) "
+				+ "WHERE film_id = :filmId", Map.of("filmId", film.getId()));
+
+		Film updated = filmStorage.getFilmById(film.getId());
+		updated.setName("updated");
+		filmStorage.updateFilm(updated);
+		assertTrue(filmStorage.getTrendingFilms(TrendingWindow.HOUR, 10).isEmpty());
+		assertEquals(List.of(film.getId()),
+				filmStorage.getTrendingFilms(TrendingWindow.WEEK, 10).stream().map(Film::getId).toList());
+
+		updated.getLikes().remove(first.getId());
+		updated.getLikes().add(third.getId());
+		filmStorage.updateFilm(updated);
+		assertEquals(List.of(second.getId(), third.getId()),
+				List.copyOf(filmStorage.getFilmById(film.getId()).getLikes()));
+		assertEquals(List.of(film.getId()),
+				filmStorage.getTrendingFilms(TrendingWindow.HOUR, 10).stream().map(Film::getId).toList());
+		assertEquals(2, filmStorage.getPopularFilms(1).get(0).getLikes().size());
+	}
+
+	@Test
+	void friends_SymmetricAndCommonPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		User other = userStorage.addUser(newUser("other"));
+		User common = userStorage.addUser(newUser("common"));
+
+		userStorage.addFriend(user.getId(), common.getId());
+		userStorage.addFriend(other.getId(), common.getId());
+		userStorage.addFriend(user.getId(), other.getId());
+		userStorage.addFriend(user.getId(), other.getId());
+
+		assertEquals(List.of(other.getId(), common.getId()),
+				List.copyOf(userStorage.getUserById(user.getId()).getFriends()));
+		assertEquals(List.of(user.getId(), other.getId()),
+				List.copyOf(userStorage.getUserById(common.getId()).getFriends()));
+		assertEquals(List.of(common.getId()),
+				userStorage.getCommonFriends(user.getId(), other.getId()).stream().map(User::getId).toList());
+
+		userStorage.removeFriend(other.getId(), user.getId());
+		assertEquals(List.of(common.getId()), List.copyOf(userStorage.getUserById(user.getId()).getFriends()));
+		assertEquals(3, userStorage.getUsersCount());
+		assertEquals(2, userStorage.getFriendshipsCount());
+	}
+
+	@Test
+	void updateUser_KeepsFriendshipsInEveryStoragePositiveTest() {
+		assertUpdateKeepsFriendships(userStorage);
+		assertUpdateKeepsFriendships(new InMemoryUserStorage());
+	}
+
+	@Test
+	void getFriendRecommendations_RankedByMutualFriendsPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		User friend1 = userStorage.addUser(newUser("friend1"));
+		User friend2 = userStorage.addUser(newUser("friend2"));
+		User single = userStorage.addUser(newUser("single"));
+		User common = userStorage.addUser(newUser("common"));
+		userStorage.addFriend(user.getId(), friend1.getId());
+		userStorage.addFriend(user.getId(), friend2.getId());
+		userStorage.addFriend(friend1.getId(), friend2.getId());
+		userStorage.addFriend(friend1.getId(), single.getId());
+		userStorage.addFriend(friend1.getId(), common.getId());
+		userStorage.addFriend(friend2.getId(), common.getId());
+
+		assertEquals(List.of(common.getId(), single.getId()), userStorage.getFriendRecommendations(user.getId(), 10)
+				.stream().map(User::getId).toList());
+		assertEquals(1, userStorage.getFriendRecommendations(user.getId(), 1).size());
+	}
+
+	@Test
+	void getRecommendedFilms_RankedByLikesOfSimilarUsersPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		User similar = userStorage.addUser(newUser("similar"));
+		User other = userStorage.addUser(newUser("other"));
+		Film liked = filmStorage.addFilm(newFilm("liked"));
+		Film first = filmStorage.addFilm(newFilm("first"));
+		Film second = filmStorage.addFilm(newFilm("second"));
+		Film unrelated = filmStorage.addFilm(newFilm("unrelated"));
+		filmStorage.addLike(liked.getId(), user.getId());
+		filmStorage.addLike(liked.getId(), similar.getId());
+		filmStorage.addLike(first.getId(), similar.getId());
+		filmStorage.addLike(second.getId(), similar.getId());
+		filmStorage.addLike(unrelated.getId(), other.getId());
+
+		assertEquals(List.of(first.getId(), second.getId()), filmStorage.getRecommendedFilms(user.getId(), 10)
+				.stream().map(Film::getId).toList());
+	}
+
+	@Test
+	void removeUserLikes_DecrementsLikeCountsPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		User other = userStorage.addUser(newUser("other"));
+		Film first = filmStorage.addFilm(newFilm("first"));
+		Film second = filmStorage.addFilm(newFilm("second"));
+		filmStorage.addLike(first.getId(), user.getId());
+		filmStorage.addLike(second.getId(), user.getId());
+		filmStorage.addLike(second.getId(), other.getId());
+
+		assertEquals(List.of(first.getId(), second.getId()),
+				filmStorage.getLikedFilms(user.getId()).stream().map(Film::getId).toList());
+		filmStorage.removeUserLikes(user.getId());
+
+		assertTrue(filmStorage.getLikedFilms(user.getId()).isEmpty());
+		assertEquals(List.of(second.getId(), first.getId()),
+				filmStorage.getPopularFilms(10).stream().map(Film::getId).toList());
+		assertEquals(1, filmStorage.getLikesCount());
+	}
+
+	@Test
+	void streamFilms_GroupsLikesAndPagesByIdPositiveTest() {
+		User user = userStorage.addUser(newUser("user"));
+		Film first = filmStorage.addFilm(newFilm("first"));
+		Film second = filmStorage.addFilm(newFilm("second"));
+		filmStorage.addLike(first.getId(), user.getId());
+
+		try (Stream<Film> films = filmStorage.streamFilms()) {
+			List<Film> exported = films.toList();
+			assertEquals(List.of(first.getId(), second.getId()), exported.stream().map(Film::getId).toList());
+			assertEquals(List.of(user.getId()), List.copyOf(exported.get(0).getLikes()));
+			assertTrue(exported.get(1).getLikes().isEmpty());
+		}
+		assertEquals(List.of(second.getId()),
+				filmStorage.getFilmsPage(first.getId(), 10).stream().map(Film::getId).toList());
+		assertNull(filmStorage.getFilmById(second.getId() + 1));
+	}
+
+	@Test
+	void cachingStorages_InvalidateOnLikeAndFriendPositiveTest() {
+		CachingFilmStorage cachedFilms = new CachingFilmStorage(filmStorage, 100, Duration.ofMinutes(1));
+		CachingUserStorage cachedUsers = new CachingUserStorage(userStorage, 100, Duration.ofMinutes(1));
+		User user = cachedUsers.addUser(newUser("user"));
+		User friend = cachedUsers.addUser(newUser("friend"));
+		Film film = cachedFilms.addFilm(newFilm("film"));
+
+		assertTrue(cachedFilms.getFilmById(film.getId()).getLikes().isEmpty());
+		assertTrue(cachedUsers.getUserById(friend.getId()).getFriends().isEmpty());
+		cachedFilms.addLike(film.getId(), user.getId());
+		cachedUsers.addFriend(user.getId(), friend.getId());
+
+		assertEquals(List.of(user.getId()), List.copyOf(cachedFilms.getFilmById(film.getId()).getLikes()));
+		assertEquals(List.of(user.getId()), List.copyOf(cachedUsers.getUserById(friend.getId()).getFriends()));
+		assertSame(cachedUsers.getUserById(friend.getId()), cachedUsers.getUsersByIds(List.of(friend.getId())).get(0));
+		assertEquals(2, cachedUsers.getCacheStats().hits());
+	}
+
+	/**
+	 * Обновление пользователя с другим набором друзей не меняет дружбы ни с одной стороны
+	 */
+	private static void assertUpdateKeepsFriendships(UserStorage storage) {
+		User user = storage.addUser(newUser("user"));
+		User friend = storage.addUser(newUser("friend"));
+		User other = storage.addUser(newUser("other"));
+		storage.addFriend(user.getId(), friend.getId());
+
+		User updated = newUser("updated");
+		updated.setId(user.getId());
+		updated.getFriends().add(other.getId());
+		User result = storage.updateUser(updated);
+
+		assertEquals(List.of(friend.getId()), List.copyOf(result.getFriends()));
+		assertEquals("updated", storage.getUserById(user.getId()).getLogin());
+		assertEquals(List.of(friend.getId()), List.copyOf(storage.getUserById(user.getId()).getFriends()));
+		assertEquals(List.of(user.getId()), List.copyOf(storage.getUserById(friend.getId()).getFriends()));
+		assertTrue(storage.getUserById(other.getId()).getFriends().isEmpty());
+		assertEquals(1, storage.getFriendshipsCount());
+	}
+
+	private static Film newFilm(String name) {
+		Film film = new Film();
+		film.setName(name);
+		film.setDescription("description");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+
+	private static User newUser(String login) {
+		User user = new User();
+		user.setEmail(login + "@mail.ru");
+		user.setLogin(login);
+		user.setName(login);
+		user.setBirthday(LocalDate.of(1990, 1, 1));
+		return user;
+	}
+}
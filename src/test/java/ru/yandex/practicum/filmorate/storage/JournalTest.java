@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void sync_RetriesBatchAfterFailedWritePositiveTest() throws IOException {
+		List<FailingChannel> channels = new ArrayList<>();
+		Journal<String, String> journal = new Journal<>(directory, "test", objectMapper, String.class, List.of()) {
+			@Override
+			FileChannel openSegment(long startSeq) throws IOException {
+				FailingChannel channel = new FailingChannel(super.openSegment(startSeq));
+				channels.add(channel);
+				return channel;
+			}
+		};
+		journal.recover(record -> {
+		}, entry -> {
+		});
+		journal.sync(journal.append("first"));
+
+		channels.get(0).failWrites = true;
+		long second = journal.append("second");
+		assertThrows(UncheckedIOException.class, () -> journal.sync(second));
+		assertThrows(UncheckedIOException.class, () -> journal.sync(second));
+
+		channels.get(0).failWrites = false;
+		long third = journal.append("third");
+		journal.sync(second);
+		journal.sync(third);
+		journal.close();
+
+		assertEquals(List.of("first", "second", "third"), replay());
+	}
+
+	private List<String> replay() throws IOException {
+		List<String> entries = new ArrayList<>();
+		try (Journal<String, String> journal = new Journal<>(directory, "test", objectMapper, String.class,
+				List.of())) {
+			journal.recover(record -> {
+			}, entries::add);
+		}
+		return entries;
+	}
+
+	/**
+	 * Канал сегмента, который по флагу дописывает половину буфера и завершается ошибкой
+	 */
+	private static final class FailingChannel extends FileChannel {
+		private final FileChannel delegate;
+		private volatile boolean failWrites;
+
+		FailingChannel(FileChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (failWrites) {
+				ByteBuffer half = src.duplicate();
+				half.limit(src.position() + src.remaining() / 2);
+				src.position(src.position() + delegate.write(half));
+				throw new IOException("Нет места на диске");
+			}
+			return delegate.write(src);
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return delegate.read(dst);
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return delegate.read(dsts, offset, length);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			return delegate.write(srcs, offset, length);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			delegate.force(metaData);
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			return delegate.transferFrom(src, position, count);
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return delegate.read(dst, position);
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			return delegate.write(src, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledFilmStorageTest {
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void recover_ReplaysJournalWithoutSnapshotPositiveTest() {
+		JournaledFilmStorage storage = open(1_000);
+		Film first = storage.addFilm(newFilm("first"));
+		Film second = storage.addFilm(newFilm("second"));
+		storage.addLike(second.getId(), 7);
+		storage.addLike(second.getId(), 8);
+		storage.addLike(first.getId(), 7);
+		storage.removeLike(first.getId(), 7);
+
+		// хранилище не закрывается: имитируем аварийную остановку
+		JournaledFilmStorage recovered = open(1_000);
+
+		assertEquals(List.of(second.getId(), first.getId()),
+				recovered.getPopularFilms(10).stream().map(Film::getId).toList());
+		assertEquals(List.of(7, 8), List.copyOf(recovered.getFilmById(second.getId()).getLikes()));
+		assertEquals(List.of(second.getId()), recovered.getLikedFilms(7).stream().map(Film::getId).toList());
+		assertEquals(List.of(second.getId()),
+				recovered.getTrendingFilms(TrendingWindow.HOUR, 10).stream().map(Film::getId).toList());
+		assertEquals(second.getId() + 1, recovered.addFilm(newFilm("third")).getId());
+	}
+
+	@Test
+	void recover_LoadsSnapshotAndJournalTailPositiveTest() throws Exception {
+		JournaledFilmStorage storage = open(2);
+		Film film = storage.addFilm(newFilm("film"));
+		storage.addLike(film.getId(), 1);
+		storage.addLike(film.getId(), 2);
+		Film updated = newFilm("updated");
+		updated.setId(film.getId());
+		updated.setLikes(storage.getFilmById(film.getId()).getLikes());
+		storage.updateFilm(updated);
+		storage.addLike(film.getId(), 3);
+		storage.close();
+
+		JournaledFilmStorage recovered = open(2);
+
+		Film restored = recovered.getFilmById(film.getId());
+		assertEquals("updated", restored.getName());
+		assertEquals(List.of(1, 2, 3), List.copyOf(restored.getLikes()));
+	}
+
+	@Test
+	void recover_ConvertsJsonSnapshotToBinaryPositiveTest() throws Exception {
+		JournaledFilmStorage storage = open(1_000, "json");
+		Film film = newFilm("film");
+		film.setDescription("description");
+		storage.addFilm(film);
+		storage.addFilm(newFilm("film"));
+		storage.addLike(film.getId(), 5);
+		storage.close();
+
+		open(1_000, "binary");
+		assertArrayEquals(new byte[]{0x46, 0x4D, 0x52, 0x54}, Arrays.copyOf(Files.readAllBytes(
+				directory.resolve("films.snapshot")), 4));
+
+		JournaledFilmStorage recovered = open(1_000, "binary");
+		assertEquals(film, recovered.getFilmById(film.getId()));
+		assertEquals(2, recovered.getAllFilms().size());
+		assertSame(recovered.getFilmById(1).getName(), recovered.getFilmById(2).getName());
+	}
+
+	private JournaledFilmStorage open(long snapshotEvery) {
+		return open(snapshotEvery, "binary");
+	}
+
+	private JournaledFilmStorage open(long snapshotEvery, String snapshotFormat) {
+		JournaledFilmStorage storage = new JournaledFilmStorage(objectMapper, directory, snapshotEvery, snapshotFormat);
+		storage.recover();
+		return storage;
+	}
+
+	private Film newFilm(String name) {
+		Film film = new Film();
+		film.setName(name);
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageCacheTest {
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void get_EvictsLeastRecentlyUsedPositiveTest() {
+		StorageCache<String> cache = new StorageCache<>(16, Duration.ofMinutes(1), now::get);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertEquals("1", cache.get(1, id -> load(loads, id)));
+		assertEquals("1", cache.get(1, id -> load(loads, id)));
+		assertEquals(1, loads.get());
+
+		for (int id = 2; id < 1_000; id++) {
+			cache.get(id, key -> load(loads, key));
+		}
+		CacheStats stats = cache.stats();
+		assertEquals(1, stats.hits());
+		assertEquals(999, stats.misses());
+		assertTrue(stats.size() <= 16);
+		assertEquals(999 - stats.size(), stats.evictions());
+	}
+
+	@Test
+	void get_ExpiresEntriesAfterTtlPositiveTest() {
+		StorageCache<String> cache = new StorageCache<>(100, Duration.ofSeconds(10), now::get);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(7, id -> load(loads, id));
+		now.addAndGet(Duration.ofSeconds(5).toNanos());
+		cache.get(7, id -> load(loads, id));
+		assertEquals(1, loads.get());
+
+		now.addAndGet(Duration.ofSeconds(6).toNanos());
+		cache.get(7, id -> load(loads, id));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void put_IgnoresValueLoadedBeforeInvalidationPositiveTest() {
+		StorageCache<String> cache = new StorageCache<>(100, Duration.ofMinutes(1), now::get);
+
+		long generation = cache.generation(3);
+		cache.invalidate(3);
+		cache.put(3, "stale", generation);
+		assertNull(cache.get(3));
+
+		List<String> loaded = cache.getAll(List.of(3, 4), ids -> ids.stream().map(String::valueOf).toList(),
+				Integer::parseInt);
+		assertEquals(List.of("3", "4"), loaded);
+		assertEquals("3", cache.get(3));
+	}
+
+	private static String load(AtomicInteger loads, int id) {
+		loads.incrementAndGet();
+		return String.valueOf(id);
+	}
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageMetricsTest {
+	private InMemoryFilmStorage filmStorage;
+	private InMemoryUserStorage userStorage;
+	private MeterRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		filmStorage = new InMemoryFilmStorage();
+		userStorage = new InMemoryUserStorage();
+		registry = new SimpleMeterRegistry();
+		new StorageMetrics(filmStorage, userStorage).bindTo(registry);
+	}
+
+	@Test
+	void gauges_FollowStorageMutationsPositiveTest() {
+		User first = userStorage.addUser(newUser("first"));
+		User second = userStorage.addUser(newUser("second"));
+		User third = userStorage.addUser(newUser("third"));
+		Film film = filmStorage.addFilm(newFilm("film"));
+		Film other = filmStorage.addFilm(newFilm("other"));
+
+		filmStorage.addLike(film.getId(), first.getId());
+		filmStorage.addLike(film.getId(), first.getId());
+		filmStorage.addLike(film.getId(), second.getId());
+		filmStorage.addLike(other.getId(), second.getId());
+		filmStorage.removeLike(other.getId(), second.getId());
+		userStorage.addFriend(first.getId(), second.getId());
+		userStorage.addFriend(second.getId(), first.getId());
+		userStorage.addFriend(first.getId(), third.getId());
+		userStorage.removeFriend(third.getId(), first.getId());
+
+		assertEquals(2, gauge("filmorate.films"));
+		assertEquals(2, gauge("filmorate.likes"));
+		assertEquals(3, gauge("filmorate.users"));
+		assertEquals(1, gauge("filmorate.friendships"));
+
+		filmStorage.deleteFilm(film.getId());
+		userStorage.deleteUser(third.getId());
+		assertEquals(1, gauge("filmorate.films"));
+		assertEquals(0, gauge("filmorate.likes"));
+		assertEquals(2, gauge("filmorate.users"));
+	}
+
+	private double gauge(String name) {
+		return registry.get(name).gauge().value();
+	}
+
+	private static Film newFilm(String name) {
+		Film film = new Film();
+		film.setName(name);
+		film.setDescription("description");
+		film.setReleaseDate(LocalDate.of(2000, 1, 1));
+		film.setDuration(100);
+		return film;
+	}
+
+	private static User newUser(String login) {
+		User user = new User();
+		user.setEmail(login + "@mail.ru");
+		user.setLogin(login);
+		user.setName(login);
+		user.setBirthday(LocalDate.of(1990, 1, 1));
+		return user;
+	}
+}